@@ -0,0 +1,110 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic generator for synthetic repository paths and Review-Files rules.
+ *
+ * The same seed always yields the same corpus, so that results of different
+ * runs and of different matcher implementations can be compared.
+ */
+class PathCorpus {
+  private static final String[] DIRECTORIES = {
+      "src", "test", "lib", "include", "doc", "tools", "config", "common",
+      "components", "drivers", "platform", "generated", "resources", "api",
+  };
+
+  private static final String[] EXTENSIONS = {
+      "c", "h", "cpp", "java", "py", "md", "xml", "json", "txt", "gen.c",
+  };
+
+  private final Random random;
+  private final int maxDepth;
+
+  PathCorpus(long seed, int maxDepth) {
+    this.random = new Random(seed);
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * Create `count` distinct file paths, each between one and `maxDepth` directories deep.
+   */
+  List<String> files(int count) {
+    Set<String> paths = new LinkedHashSet<>();
+    int serial = 0;
+    while (paths.size() < count) {
+      StringBuilder path = new StringBuilder();
+      int depth = 1 + random.nextInt(maxDepth);
+      for (int i = 0; i < depth; i++) {
+        path.append(directory()).append('/');
+      }
+      path.append("file").append(serial++).append('.').append(extension());
+      paths.add(path.toString());
+    }
+    return new ArrayList<>(paths);
+  }
+
+  /**
+   * All distinct parent directories of the given paths.
+   */
+  static List<String> directories(List<String> files) {
+    Set<String> dirs = new LinkedHashSet<>();
+    for (String file : files) {
+      int slash = file.indexOf('/');
+      while (slash > 0) {
+        dirs.add(file.substring(0, slash));
+        slash = file.indexOf('/', slash + 1);
+      }
+    }
+    return new ArrayList<>(dirs);
+  }
+
+  /**
+   * Create `count` Review-Files lines mixing literal directories, extensions,
+   * `**` patterns and negations, roughly in the proportions seen in practice.
+   */
+  List<String> rules(int count) {
+    List<String> rules = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int kind = random.nextInt(10);
+      if (kind < 4) {
+        rules.add(directory() + "/" + directory() + i);
+      } else if (kind < 7) {
+        rules.add("*." + extension());
+      } else if (kind < 9) {
+        rules.add("**/" + directory() + "/**/*." + extension());
+      } else {
+        rules.add("!*." + extension());
+      }
+    }
+    return rules;
+  }
+
+  private String directory() {
+    String name = DIRECTORIES[random.nextInt(DIRECTORIES.length)];
+    int variant = random.nextInt(8);
+    return variant == 0 ? name : name + variant;
+  }
+
+  private String extension() {
+    return EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+  }
+}
@@ -0,0 +1,111 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ReviewFilter} construction and path matching.
+ *
+ * Run with `bazel run plugins/reviewtarget:reviewtarget_benchmarks -- ReviewFilterBenchmark`.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReviewFilterBenchmark {
+
+  @Param({"1", "10", "50", "200"})
+  int ruleCount;
+
+  @Param({"10000", "100000", "1000000"})
+  int corpusSize;
+
+  private List<String> rules;
+  private String[] files;
+  private String[] directories;
+  private ReviewFilter filter;
+  private int nextFile;
+  private int nextDirectory;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    PathCorpus corpus = new PathCorpus(42, 6);
+    rules = corpus.rules(ruleCount);
+    List<String> paths = corpus.files(corpusSize);
+    files = paths.toArray(new String[0]);
+    directories = PathCorpus.directories(paths).toArray(new String[0]);
+    filter = new ReviewFilter(rules);
+  }
+
+  @Benchmark
+  public ReviewFilter construct() {
+    return new ReviewFilter(rules);
+  }
+
+  /**
+   * The per-path hot loop: one file decision per invocation.
+   */
+  @Benchmark
+  public ReviewFilter.Selected matchFile() {
+    String path = files[nextFile];
+    nextFile = (nextFile + 1) % files.length;
+    return filter.isPathToBeReviewed(path, false);
+  }
+
+  /**
+   * One directory decision per invocation, as made for every tree entry
+   * before a walk decides whether to enter it.
+   */
+  @Benchmark
+  public ReviewFilter.Selected matchDirectory() {
+    String path = directories[nextDirectory];
+    nextDirectory = (nextDirectory + 1) % directories.length;
+    return filter.isPathToBeReviewed(path, true);
+  }
+
+  /**
+   * A full pass over the corpus, as done by a rewrite without any subtree pruning.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Measurement(iterations = 10)
+  public int scanCorpus() {
+    int selected = 0;
+    for (String path : files) {
+      if (filter.isPathToBeReviewed(path, false) == ReviewFilter.Selected.POSITIVE) {
+        selected++;
+      }
+    }
+    return selected;
+  }
+}
@@ -0,0 +1,137 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * In-memory repository with a parent, a target and a review commit of a configurable shape.
+ *
+ * Files are spread evenly over `fanOut` directories on each of `depth` levels.
+ * `changedPercent` of the files have different contents in the target commit.
+ * The review commit starts out with the parent's tree, as a newly created change does.
+ */
+class SyntheticRepository implements AutoCloseable {
+  static final String TARGET_REF = "refs/tags/target";
+
+  private static final int BLOB_POOL = 256;
+
+  final InMemoryRepository repo;
+  final RevCommit parent;
+  final RevCommit target;
+  final RevCommit review;
+
+  SyntheticRepository(int fileCount, int depth, int fanOut, int changedPercent, List<String> reviewFiles)
+      throws Exception {
+    repo = new InMemoryRepository(new DfsRepositoryDescription("synthetic"));
+    try (TestRepository<InMemoryRepository> tr = new TestRepository<>(repo)) {
+      ObjectId[] original = blobs(tr, "original");
+      ObjectId[] changed = blobs(tr, "changed");
+      Random random = new Random(42);
+
+      DirCache parentIndex = DirCache.newInCore();
+      DirCache targetIndex = DirCache.newInCore();
+      DirCacheBuilder parentBuilder = parentIndex.builder();
+      DirCacheBuilder targetBuilder = targetIndex.builder();
+      for (int i = 0; i < fileCount; i++) {
+        String path = path(i, fileCount, depth, fanOut);
+        ObjectId blob = original[i % BLOB_POOL];
+        parentBuilder.add(entry(path, blob));
+        if (random.nextInt(100) < changedPercent) {
+          blob = changed[i % BLOB_POOL];
+        }
+        targetBuilder.add(entry(path, blob));
+      }
+      parentBuilder.finish();
+      targetBuilder.finish();
+
+      ObjectId parentTree;
+      ObjectId targetTree;
+      try (ObjectInserter inserter = repo.newObjectInserter()) {
+        parentTree = parentIndex.writeTree(inserter);
+        targetTree = targetIndex.writeTree(inserter);
+        inserter.flush();
+      }
+
+      parent = tr.commit().setTopLevelTree(parentTree).message("parent").create();
+      target = tr.commit().setTopLevelTree(targetTree).message("target").create();
+      tr.update(TARGET_REF, target);
+
+      StringBuilder message = new StringBuilder("review\n\n");
+      message.append("Review-Target: ").append(TARGET_REF).append('\n');
+      for (String line : reviewFiles) {
+        message.append("Review-Files: ").append(line).append('\n');
+      }
+      review = tr.commit().parent(parent).setTopLevelTree(parentTree)
+          .message(message.toString()).create();
+    }
+  }
+
+  /**
+   * Path of file `index`, nested `depth` directories deep with `fanOut` directories per level.
+   */
+  static String path(int index, int fileCount, int depth, int fanOut) {
+    StringBuilder path = new StringBuilder();
+    long leafDirectories = 1;
+    for (int level = 0; level < depth; level++) {
+      leafDirectories *= fanOut;
+    }
+    long filesPerDirectory = Math.max(1, (fileCount + leafDirectories - 1) / leafDirectories);
+    long directory = index / filesPerDirectory;
+    for (int level = depth - 1; level >= 0; level--) {
+      long divisor = 1;
+      for (int i = 0; i < level; i++) {
+        divisor *= fanOut;
+      }
+      path.append('d').append((directory / divisor) % fanOut).append('/');
+    }
+    path.append('f').append(index).append(index % 4 == 0 ? ".h" : ".c");
+    return path.toString();
+  }
+
+  private static ObjectId[] blobs(TestRepository<InMemoryRepository> tr, String prefix)
+      throws Exception {
+    ObjectId[] blobs = new ObjectId[BLOB_POOL];
+    for (int i = 0; i < BLOB_POOL; i++) {
+      blobs[i] = tr.blob((prefix + " content " + i + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    return blobs;
+  }
+
+  private static DirCacheEntry entry(String path, ObjectId blob) {
+    DirCacheEntry entry = new DirCacheEntry(path);
+    entry.setFileMode(FileMode.REGULAR_FILE);
+    entry.setObjectId(blob);
+    return entry;
+  }
+
+  @Override
+  public void close() {
+    repo.close();
+  }
+}
@@ -0,0 +1,184 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.server.change.NotifyResolver;
+import com.google.gerrit.server.change.PatchSetInserter;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.update.BatchUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of {@link UpdateTree} rewrites and diffs on synthetic repositories.
+ *
+ * Run with `bazel run plugins/reviewtarget:reviewtarget_benchmarks -- UpdateTreeBenchmark -prof gc`
+ * to include the allocation rate. After each trial the heap used by the synthetic repository
+ * and bounds of the heap peak during the benchmark are printed: JMX only records the peak of
+ * each heap pool, and the pools peak at different times. So the real peak is at least the
+ * largest pool peak and at most the sum of all pool peaks.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@State(Scope.Benchmark)
+public class UpdateTreeBenchmark {
+
+  @Param({"10000", "100000", "1000000", "2000000"})
+  int fileCount;
+
+  @Param({"4"})
+  int depth;
+
+  @Param({"8"})
+  int fanOut;
+
+  @Param({"1", "10", "50"})
+  int changedPercent;
+
+  // Review-Files lines separated by ';'
+  @Param({"*.c", "d0;!*.h"})
+  String reviewFiles;
+
+  private SyntheticRepository synthetic;
+  private UpdateUtil updateUtil;
+  private RebaseUtil rebaseUtil;
+  private long setupUsage;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    synthetic = new SyntheticRepository(fileCount, depth, fanOut, changedPercent,
+        Arrays.asList(reviewFiles.split(";")));
+
+    Configuration cfg = mock(Configuration.class);
+    when(cfg.getReviewTargetFooter()).thenReturn(Configuration.DEFAULT_REVIEW_TARGET_FOOTER);
+    when(cfg.getReviewFilesFooter()).thenReturn(Configuration.DEFAULT_REVIEW_FILES_FOOTER);
+    updateUtil = new UpdateUtil(
+        cfg,
+        mock(PatchSetInserter.Factory.class),
+        mock(BatchUpdate.Factory.class),
+        mock(NotifyResolver.class));
+    rebaseUtil = mock(RebaseUtil.class);
+
+    // measure the benchmark, not building the repository
+    System.gc();
+    setupUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    resetPeakUsage();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    long largest = 0;
+    long sum = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        long peak = pool.getPeakUsage().getUsed();
+        largest = Math.max(largest, peak);
+        sum += peak;
+      }
+    }
+    System.out.printf("%nheap after setup: %d MiB, heap peak: %d to %d MiB%n",
+        setupUsage >> 20, largest >> 20, sum >> 20);
+    synthetic.close();
+  }
+
+  /**
+   * An already rewritten tree for the benchmarks which only measure the later steps.
+   */
+  @State(Scope.Thread)
+  public static class Rewritten {
+    UpdateTree update;
+
+    @Setup(Level.Invocation)
+    public void rewrite(UpdateTreeBenchmark benchmark) throws Exception {
+      update = benchmark.open();
+      update.rewritePaths();
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() {
+      update.close();
+    }
+  }
+
+  @Benchmark
+  public boolean rewritePaths() throws Exception {
+    try (UpdateTree update = open()) {
+      update.rewritePaths();
+      return update.isValidReviewTarget();
+    }
+  }
+
+  @Benchmark
+  public int getChangedPaths(Rewritten rewritten) throws Exception {
+    List<String> added = new ArrayList<>();
+    List<String> updated = new ArrayList<>();
+    List<String> removed = new ArrayList<>();
+    rewritten.update.getChangedPaths(added, updated, removed);
+    return added.size() + updated.size() + removed.size();
+  }
+
+  @Benchmark
+  public boolean hasCurrentPaths(Rewritten rewritten) throws Exception {
+    return rewritten.update.hasCurrentPaths();
+  }
+
+  /**
+   * The full `has:selected` check: rewrite and compare.
+   */
+  @Benchmark
+  public boolean verify() throws Exception {
+    try (UpdateTree update = open()) {
+      update.rewritePaths();
+      return update.hasCurrentPaths();
+    }
+  }
+
+  private UpdateTree open() throws Exception {
+    UpdateTree update = new UpdateTree(synthetic.repo, updateUtil, rebaseUtil);
+    update.useCommit(synthetic.review);
+    return update;
+  }
+
+  private static void resetPeakUsage() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      pool.resetPeakUsage();
+    }
+  }
+}
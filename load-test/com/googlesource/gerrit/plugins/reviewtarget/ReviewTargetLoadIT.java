@@ -0,0 +1,220 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.acceptance.LightweightPluginDaemonTest;
+import com.google.gerrit.acceptance.PushOneCommit;
+import com.google.gerrit.acceptance.TestPlugin;
+import com.google.gerrit.acceptance.UseLocalDisk;
+import com.google.gerrit.acceptance.config.GerritConfig;
+import com.google.gerrit.entities.BranchNameKey;
+import com.google.gerrit.extensions.api.projects.TagInput;
+import com.google.gerrit.extensions.common.ChangeInfo;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Concurrent `has:selected` queries and follow previews against an in-process server.
+ *
+ * Not part of the regular test run. Start it with
+ * `bazel test --test_output=streamed plugins/reviewtarget:reviewtarget_load_tests`
+ * and size the load with `--jvmopt=-Dreviewtarget.load.users=50` etc., see {@link #intProperty}.
+ */
+@UseLocalDisk
+@TestPlugin(
+    name = "reviewtarget",
+    sysModule = "com.googlesource.gerrit.plugins.reviewtarget.PluginModule")
+public class ReviewTargetLoadIT extends LightweightPluginDaemonTest {
+  private static final String QUERY = "status:open has:selected_reviewtarget";
+  private static final String REVIEW_BRANCH = "review";
+
+  private final int queryUsers = intProperty("users", 50);
+  private final int previewUsers = intProperty("previewers", 5);
+  private final int changeCount = intProperty("changes", 100);
+  private final int fileCount = intProperty("files", 2000);
+  private final int seconds = intProperty("seconds", 30);
+
+  private final List<String> changeIds = new ArrayList<>();
+
+  @Test
+  @GerritConfig(name = "plugin.reviewtarget.reviewBranch", value = "refs/heads/" + REVIEW_BRANCH)
+  public void concurrentQueriesAndPreviews() throws Exception {
+    seed();
+
+    List<Long> queryLatencies = new ArrayList<>();
+    List<Long> previewLatencies = new ArrayList<>();
+    AtomicLong errors = new AtomicLong();
+    AtomicLong peakOpenFiles = new AtomicLong();
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+    ExecutorService pool = Executors.newFixedThreadPool(queryUsers + previewUsers + 1);
+    try {
+      List<Future<List<Long>>> queries = new ArrayList<>();
+      List<Future<List<Long>>> previews = new ArrayList<>();
+      for (int i = 0; i < queryUsers; i++) {
+        queries.add(pool.submit(() -> run(deadline, errors, this::query)));
+      }
+      for (int i = 0; i < previewUsers; i++) {
+        previews.add(pool.submit(() -> run(deadline, errors, this::preview)));
+      }
+      pool.submit(() -> sampleOpenFiles(deadline, peakOpenFiles));
+
+      for (Future<List<Long>> f : queries) {
+        queryLatencies.addAll(f.get());
+      }
+      for (Future<List<Long>> f : previews) {
+        previewLatencies.addAll(f.get());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    double elapsed = (System.nanoTime() - start) / 1e9;
+
+    System.out.printf(
+        "%nreviewtarget load: %d changes, %d files, %d query users, %d preview users, %ds%n",
+        changeCount, fileCount, queryUsers, previewUsers, seconds);
+    report("has:selected query", queryLatencies, elapsed);
+    report("follow preview", previewLatencies, elapsed);
+    System.out.printf("errors: %d, peak open pack files: %d%n", errors.get(), peakOpenFiles.get());
+
+    assertThat(errors.get()).isEqualTo(0);
+  }
+
+  private interface Operation {
+    void run() throws Exception;
+  }
+
+  private List<Long> run(long deadline, AtomicLong errors, Operation op) {
+    setRequestScope(admin);
+    List<Long> latencies = new ArrayList<>();
+    while (System.nanoTime() < deadline) {
+      long start = System.nanoTime();
+      try {
+        op.run();
+        latencies.add(System.nanoTime() - start);
+      } catch (Exception e) {
+        // later failures are usually the same, the count is printed at the end
+        if (errors.incrementAndGet() == 1) {
+          System.out.println("first failure:");
+          e.printStackTrace(System.out);
+        }
+      }
+    }
+    return latencies;
+  }
+
+  private void query() throws Exception {
+    List<ChangeInfo> changes = gApi.changes().query(QUERY).withLimit(500).get();
+    assertThat(changes.size()).isAtMost(changeCount);
+  }
+
+  private void preview() throws Exception {
+    String changeId = changeIds.get(ThreadLocalRandom.current().nextInt(changeIds.size()));
+    PostFollow.Input input = new PostFollow.Input();
+    input.newReviewFiles = "dir" + ThreadLocalRandom.current().nextInt(10);
+    postFollow().apply(parseChangeResource(changeId), input);
+  }
+
+  private void sampleOpenFiles(long deadline, AtomicLong peak) {
+    while (System.nanoTime() < deadline) {
+      peak.accumulateAndGet(WindowCacheStats.getStats().getOpenFileCount(), Math::max);
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Create a follow branch with a tagged version, and review changes for it.
+   * Every other change is updated so that half of them match `has:selected`.
+   */
+  private void seed() throws Exception {
+    RevCommit base = getHead(testRepo.getRepository(), "HEAD");
+    createBranch(BranchNameKey.create(project, REVIEW_BRANCH));
+
+    Map<String, String> files = new HashMap<>();
+    for (int i = 0; i < fileCount; i++) {
+      files.put("dir" + (i % 10) + "/sub" + (i % 97) + "/file" + i + ".c", "content " + i + "\n");
+    }
+    PushOneCommit.Result imported =
+        pushFactory.create(admin.newIdent(), testRepo, "import", files).to("refs/heads/master");
+    imported.assertOkStatus();
+    TagInput tag = new TagInput();
+    tag.revision = imported.getCommit().name();
+    gApi.projects().name(project.get()).tag("v1").create(tag);
+
+    for (int i = 0; i < changeCount; i++) {
+      testRepo.reset(base);
+      String message = "Review part " + i + "\n\nReview-Target: v1\nReview-Files: dir" + (i % 10);
+      PushOneCommit.Result change = pushFactory
+          .create(admin.newIdent(), testRepo, message, "README", "review " + i + "\n")
+          .to("refs/for/" + REVIEW_BRANCH);
+      change.assertOkStatus();
+      changeIds.add(change.getChangeId());
+
+      if (i % 2 == 0) {
+        PostFollow.Input input = new PostFollow.Input();
+        input.doUpdate = true;
+        postFollow().apply(parseChangeResource(change.getChangeId()), input);
+      }
+    }
+  }
+
+  private PostFollow postFollow() {
+    return plugin.getSysInjector().getInstance(PostFollow.class);
+  }
+
+  private static void report(String name, List<Long> latencies, double elapsed) {
+    long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+    Arrays.sort(sorted);
+    System.out.printf(
+        "%-20s %8d ops %10.1f ops/s  p50 %8.1f ms  p99 %8.1f ms%n",
+        name,
+        sorted.length,
+        sorted.length / elapsed,
+        percentile(sorted, 50) / 1e6,
+        percentile(sorted, 99) / 1e6);
+  }
+
+  private static long percentile(long[] sorted, int percent) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private static int intProperty(String name, int defaultValue) {
+    return Integer.getInteger("reviewtarget.load." + name, defaultValue);
+  }
+}
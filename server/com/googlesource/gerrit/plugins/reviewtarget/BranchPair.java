@@ -0,0 +1,67 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.common.Nullable;
+
+import org.eclipse.jgit.ignore.FastIgnoreRule;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A follow branch together with the review branches whose changes follow it.
+ */
+class BranchPair {
+  private final String followBranch;
+  private final String reviewBranch;
+  private final FastIgnoreRule reviewBranchRule;
+
+  BranchPair(String followBranch, String reviewBranch) {
+    this.followBranch = requireNonNull(followBranch);
+    this.reviewBranch = requireNonNull(reviewBranch);
+    this.reviewBranchRule = new FastIgnoreRule(reviewBranch);
+  }
+
+  /**
+   * Parse `<followBranch>:<reviewBranch>`.
+   * @return null if the value has not this form
+   */
+  @Nullable
+  static BranchPair parse(String value) {
+    int colon = value.indexOf(':');
+    if (colon <= 0 || colon == value.length() - 1) {
+      return null;
+    }
+    return new BranchPair(value.substring(0, colon).trim(), value.substring(colon + 1).trim());
+  }
+
+  String getFollowBranch() {
+    return followBranch;
+  }
+
+  String getReviewBranch() {
+    return reviewBranch;
+  }
+
+  boolean isReviewBranch(String branchName) {
+    return reviewBranchRule.isMatch(branchName, false);
+  }
+
+  @Override
+  public String toString() {
+    return followBranch + ":" + reviewBranch;
+  }
+}
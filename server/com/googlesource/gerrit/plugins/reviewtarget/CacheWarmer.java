@@ -0,0 +1,243 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Fill the caches for all open changes on review branches after a start.
+ *
+ * Runs once in the background with a single low priority thread when
+ * `warmupOnStart` is set. The footers of every change are parsed and
+ * their Review-Files compiled, and the Review-Targets and follow branches
+ * are resolved together with their versions.
+ *
+ * When verifications are recorded, every change without a valid stamp is
+ * also compared once like by the commit validator, and a stamp is recorded
+ * if it matches. So the first has:selected queries after a start find the
+ * stamps instead of comparing trees.
+ */
+@Singleton
+class CacheWarmer implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int BATCH_SIZE = 100;
+
+  private final Configuration cfg;
+  private final WorkQueue workQueue;
+  private final ProjectCache projectCache;
+  private final Provider<InternalChangeQuery> queryProvider;
+  private final ProjectConfigCache projectConfig;
+  private final GitRepositoryManager gitManager;
+  private final ReviewTargetResolver targetResolver;
+  private final UpdateUtil updateUtil;
+  private final RebaseUtil rebaseUtil;
+  private final VerificationNotes notes;
+  private volatile boolean stopped;
+  private ScheduledExecutorService executor;
+
+  @Inject
+  CacheWarmer(
+      Configuration cfg,
+      WorkQueue workQueue,
+      ProjectCache projectCache,
+      Provider<InternalChangeQuery> queryProvider,
+      ProjectConfigCache projectConfig,
+      GitRepositoryManager gitManager,
+      ReviewTargetResolver targetResolver,
+      UpdateUtil updateUtil,
+      RebaseUtil rebaseUtil,
+      VerificationNotes notes) {
+    this.cfg = requireNonNull(cfg);
+    this.workQueue = requireNonNull(workQueue);
+    this.projectCache = requireNonNull(projectCache);
+    this.queryProvider = requireNonNull(queryProvider);
+    this.projectConfig = requireNonNull(projectConfig);
+    this.gitManager = requireNonNull(gitManager);
+    this.targetResolver = requireNonNull(targetResolver);
+    this.updateUtil = requireNonNull(updateUtil);
+    this.rebaseUtil = requireNonNull(rebaseUtil);
+    this.notes = requireNonNull(notes);
+  }
+
+  @Override
+  public void start() {
+    if (!cfg.getWarmupOnStart()) {
+      return;
+    }
+    executor = workQueue.createQueue(1, "ReviewTarget-Warmup");
+    executor.submit(() -> {
+      Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+      run();
+    });
+  }
+
+  @Override
+  public void stop() {
+    stopped = true;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @VisibleForTesting
+  void run() {
+    long start = System.nanoTime();
+    int projects = 0;
+    int changes = 0;
+
+    try {
+      for (Project.NameKey project : projectCache.all()) {
+        if (stopped) {
+          logger.atInfo().log("cache warm-up stopped after %d changes in %d projects", changes, projects);
+          return;
+        }
+        List<ChangeData> open = new ArrayList<>();
+        for (ChangeData cd : queryProvider.get().byProjectOpen(project)) {
+          if (projectConfig.forReviewBranch(cd.change().getDest()) != null) {
+            open.add(cd);
+          }
+        }
+        if (open.isEmpty()) {
+          continue;
+        }
+
+        warm(project, open);
+        projects++;
+        changes += open.size();
+        logger.atInfo().log("cache warm-up: %d open review changes in %s", open.size(), project);
+      }
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log(
+          "cache warm-up failed after %d changes in %d projects", changes, projects);
+      return;
+    }
+    logger.atInfo().log(
+        "cache warm-up done: %d changes in %d projects in %d ms",
+        changes, projects, NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  private void warm(Project.NameKey project, List<ChangeData> changes) {
+    try (Repository repo = gitManager.openRepository(project)) {
+      for (List<ChangeData> batch : Lists.partition(changes, BATCH_SIZE)) {
+        if (stopped) {
+          return;
+        }
+        warm(project, repo, batch);
+      }
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("cache warm-up of %s failed", project);
+    }
+  }
+
+  private void warm(Project.NameKey project, Repository repo, List<ChangeData> changes)
+      throws IOException {
+    Set<String> names = new LinkedHashSet<>();
+    try (RevWalk rw = new RevWalk(repo)) {
+      for (ChangeData cd : changes) {
+        Change change = cd.change();
+        BranchPair pair = projectConfig.forReviewBranch(change.getDest());
+        if (pair != null) {
+          names.add(pair.getFollowBranch());
+        }
+        RevCommit current = UpdateUtil.getCurrentCommit(repo, rw, change);
+        if (current == null) {
+          continue;
+        }
+        UpdateUtil.Footers footers = updateUtil.getFooters(current);
+        names.addAll(footers.getReviewTargets());
+        for (UpdateUtil.ReviewGroup group : footers.getGroups()) {
+          updateUtil.getReviewFilter(group.getReviewFiles());
+        }
+      }
+    }
+
+    targetResolver.prefetch(project, repo, names);
+    for (String name : names) {
+      ObjectId id = targetResolver.resolve(project, repo, name);
+      if (id != null) {
+        targetResolver.findVersionRef(project, repo, id, cfg.getVersionPrefix());
+      }
+    }
+
+    if (notes.isEnabled()) {
+      verify(project, repo, changes);
+    }
+  }
+
+  /**
+   * Compare the changes which have no valid stamp yet, and record one for each match.
+   */
+  private void verify(Project.NameKey project, Repository repo, List<ChangeData> changes) {
+    try (RevWalk rw = new RevWalk(repo)) {
+      UpdateTree.TargetResolver resolver = targetResolver.forRepository(project, repo, rw);
+      for (ChangeData cd : changes) {
+        if (stopped) {
+          return;
+        }
+        Change change = cd.change();
+        if (change.currentPatchSetId() == null) {
+          continue;
+        }
+        // a Formatter only computes ids, nothing can be inserted
+        try (UpdateTree update = new UpdateTree(
+            repo, rw, new ObjectInserter.Formatter(), updateUtil, rebaseUtil)) {
+          update.setTargetResolver(resolver);
+          update.useChange(change);
+          if (!update.isValidReviewTarget()) {
+            continue;
+          }
+          VerificationNotes.Stamp stamp = VerificationNotes.Stamp.of(update);
+          if (!notes.isVerified(update, stamp) && update.findMismatchedPaths(1).isEmpty()) {
+            notes.record(project, repo, update.getCurrentCommit(), stamp);
+          }
+        } catch (RestApiException | IOException e) {
+          logger.atFine().withCause(e).log("cache warm-up cannot verify change %s", change.getId());
+        }
+      }
+    }
+  }
+}
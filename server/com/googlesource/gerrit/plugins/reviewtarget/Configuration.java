@@ -14,13 +14,18 @@
 
 package com.googlesource.gerrit.plugins.reviewtarget;
 
+import com.google.common.hash.Hashing;
 import com.google.gerrit.extensions.annotations.PluginName;
+import com.google.gerrit.server.config.ConfigUtil;
 import com.google.gerrit.server.config.PluginConfig;
 import com.google.gerrit.server.config.PluginConfigFactory;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 @Singleton
 class Configuration {
@@ -30,6 +35,16 @@ class Configuration {
   private final String reviewTargetFooter;
   private final String versionPrefix;
   private final String versionDropPrefix;
+  private final int followJobThreads;
+  private final int maxFollowJobs;
+  private final int selectedMaxConcurrency;
+  private final long selectedTimeoutMs;
+  private final boolean recordVerification;
+  private final boolean requireReachableTarget;
+  private final ReviewTargetCommitValidator.Mode validateOnPush;
+  private final boolean warmupOnStart;
+  private final long statsMaxBytes;
+  private final String fingerprint;
 
   static final String DEFAULT_FOLLOW_BRANCH = "refs/heads/master";
   static final String DEFAULT_REVIEW_BRANCH = "refs/heads/review";
@@ -37,6 +52,10 @@ class Configuration {
   static final String DEFAULT_REVIEW_TARGET_FOOTER = "Review-Target";
   static final String DEFAULT_VERSION_PREFIX = "refs/tags/";
   static final String DEFAULT_VERSION_DROP_PREFIX = "refs/tags/";
+  static final int DEFAULT_FOLLOW_JOB_THREADS = 2;
+  static final int DEFAULT_MAX_FOLLOW_JOBS = 10;
+  static final long DEFAULT_SELECTED_TIMEOUT_MS = SECONDS.toMillis(30);
+  static final long DEFAULT_STATS_MAX_BYTES = 16 << 20;
 
   @Inject
   public Configuration(
@@ -50,6 +69,32 @@ class Configuration {
     this.reviewTargetFooter = cfg.getString("reviewTargetFooter", DEFAULT_REVIEW_TARGET_FOOTER);
     this.versionPrefix = cfg.getString("versionPrefix", DEFAULT_VERSION_PREFIX);
     this.versionDropPrefix = cfg.getString("versionDropPrefix", DEFAULT_VERSION_DROP_PREFIX);
+    this.followJobThreads = cfg.getInt("followJobThreads", DEFAULT_FOLLOW_JOB_THREADS);
+    this.maxFollowJobs = cfg.getInt("maxFollowJobs", DEFAULT_MAX_FOLLOW_JOBS);
+    this.selectedMaxConcurrency = cfg.getInt("selectedMaxConcurrency", Runtime.getRuntime().availableProcessors());
+    this.selectedTimeoutMs = ConfigUtil.getTimeUnit(
+        cfg.getString("selectedTimeout"), DEFAULT_SELECTED_TIMEOUT_MS, MILLISECONDS);
+    this.recordVerification = cfg.getBoolean("recordVerification", false);
+    this.requireReachableTarget = cfg.getBoolean("requireReachableTarget", false);
+    this.validateOnPush = cfg.getEnum("validateOnPush", ReviewTargetCommitValidator.Mode.OFF);
+    this.warmupOnStart = cfg.getBoolean("warmupOnStart", false);
+    this.statsMaxBytes = cfg.getLong("statsMaxBytes", DEFAULT_STATS_MAX_BYTES);
+    this.fingerprint = Hashing.murmur3_128().newHasher()
+        .putString(followBranch, UTF_8)
+        .putString(reviewBranch, UTF_8)
+        .putString(reviewFilesFooter, UTF_8)
+        .putString(reviewTargetFooter, UTF_8)
+        .putString(versionPrefix, UTF_8)
+        .putString(versionDropPrefix, UTF_8)
+        .hash()
+        .toString();
+  }
+
+  /**
+   * Changes whenever a setting changes which affects the results of the REST API.
+   */
+  public String getFingerprint() {
+    return fingerprint;
   }
 
   public String getFollowBranch() {
@@ -75,4 +120,40 @@ class Configuration {
   public String getVersionDropPrefix() {
     return versionDropPrefix;
   }
+
+  public int getFollowJobThreads() {
+    return followJobThreads;
+  }
+
+  public int getMaxFollowJobs() {
+    return maxFollowJobs;
+  }
+
+  public int getSelectedMaxConcurrency() {
+    return selectedMaxConcurrency;
+  }
+
+  public long getSelectedTimeoutMs() {
+    return selectedTimeoutMs;
+  }
+
+  public boolean getRecordVerification() {
+    return recordVerification;
+  }
+
+  public boolean getRequireReachableTarget() {
+    return requireReachableTarget;
+  }
+
+  public ReviewTargetCommitValidator.Mode getValidateOnPush() {
+    return validateOnPush;
+  }
+
+  public boolean getWarmupOnStart() {
+    return warmupOnStart;
+  }
+
+  public long getStatsMaxBytes() {
+    return statsMaxBytes;
+  }
 }
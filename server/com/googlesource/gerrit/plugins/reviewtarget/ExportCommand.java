@@ -0,0 +1,249 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.base.CharMatcher;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.common.FooterConstants;
+import com.google.gerrit.common.data.GlobalCapability;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.BranchNameKey;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.entities.PatchSetApproval;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.annotations.RequiresAnyCapability;
+import com.google.gerrit.json.OutputFormat;
+import com.google.gerrit.server.account.AccountCache;
+import com.google.gerrit.server.account.AccountState;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.google.gerrit.sshd.CommandMetaData;
+import com.google.gerrit.sshd.SshCommand;
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.kohsuke.args4j.Option;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Export which file was reviewed in which change, from which Review-Target
+ * and by whom, for the history of a review branch.
+ *
+ * The branch is walked once, oldest commit first, and one record per file
+ * is streamed. The last exported commit is reported as checkpoint, so that
+ * a later export with `--since` only processes new commits.
+ */
+@CommandMetaData(name = "export", description = "Export the review history of a review branch")
+@RequiresAnyCapability({GlobalCapability.ADMINISTRATE_SERVER, GlobalCapability.MAINTAIN_SERVER})
+final class ExportCommand extends SshCommand {
+
+  enum Format { CSV, NDJSON }
+
+  static class ExportInfo {
+    String commit;
+    Integer change;
+    String path;
+    String blob;
+    String reviewTarget;
+    List<String> reviewedBy;
+  }
+
+  private static final int BATCH_SIZE = 100;
+  private static final CharMatcher CSV_SPECIAL = CharMatcher.anyOf(",\"\r\n");
+
+  private final Provider<InternalChangeQuery> queryProvider;
+  private final GitRepositoryManager gitManager;
+  private final AccountCache accountCache;
+  private final ProjectConfigCache projectConfig;
+  private final UpdateUtil updateUtil;
+
+  @Option(name = "--project", aliases = {"-p"}, metaVar = "PROJECT", required = true,
+      usage = "project of the review branch")
+  private String project;
+
+  @Option(name = "--branch", aliases = {"-b"}, metaVar = "BRANCH", required = true,
+      usage = "review branch to export")
+  private String branch;
+
+  @Option(name = "--since", metaVar = "COMMIT",
+      usage = "checkpoint of an earlier export, only newer commits are exported")
+  private String since;
+
+  @Option(name = "--format", usage = "CSV or NDJSON, the default")
+  private Format format = Format.NDJSON;
+
+  private Gson gson;
+
+  @Inject
+  ExportCommand(
+      Provider<InternalChangeQuery> queryProvider,
+      GitRepositoryManager gitManager,
+      AccountCache accountCache,
+      ProjectConfigCache projectConfig,
+      UpdateUtil updateUtil) {
+    this.queryProvider = requireNonNull(queryProvider);
+    this.gitManager = requireNonNull(gitManager);
+    this.accountCache = requireNonNull(accountCache);
+    this.projectConfig = requireNonNull(projectConfig);
+    this.updateUtil = requireNonNull(updateUtil);
+  }
+
+  @Override
+  protected void run() throws UnloggedFailure, Exception {
+    Project.NameKey name = Project.nameKey(project);
+    BranchNameKey reviewBranch = BranchNameKey.create(name, branch);
+    if (projectConfig.forReviewBranch(reviewBranch) == null) {
+      throw die(branch + " is not a review branch of " + project);
+    }
+    gson = OutputFormat.JSON_COMPACT.newGson();
+
+    try (
+        Repository repo = gitManager.openRepository(name);
+        RevWalk rw = new RevWalk(repo);
+    ) {
+      Ref ref = repo.exactRef(reviewBranch.branch());
+      if (ref == null) {
+        throw die(branch + " does not exist");
+      }
+      ObjectId from = null;
+      if (since != null) {
+        from = repo.resolve(since + "^{commit}");
+        if (from == null) {
+          throw die("checkpoint " + since + " does not exist");
+        }
+      }
+
+      if (format == Format.CSV) {
+        stdout.print("commit,change,path,blob,review_target,reviewed_by\n");
+      }
+      Map<RevCommit, List<ReviewHistory.FileEntry>> pending = new LinkedHashMap<>();
+      new ReviewHistory(rw, updateUtil).walk(ref.getObjectId(), from, (commit, files) -> {
+        pending.put(commit, files);
+        if (pending.size() >= BATCH_SIZE) {
+          print(reviewBranch, pending);
+        }
+      });
+      print(reviewBranch, pending);
+      stderr.print("checkpoint " + ref.getObjectId().name() + "\n");
+    }
+  }
+
+  /**
+   * Print the records of a batch of commits, whose changes are looked up together.
+   */
+  private void print(BranchNameKey reviewBranch, Map<RevCommit, List<ReviewHistory.FileEntry>> pending) {
+    List<String> names = new ArrayList<>(pending.size());
+    for (RevCommit commit : pending.keySet()) {
+      names.add(commit.name());
+    }
+    Map<ObjectId, ChangeData> changes = new HashMap<>();
+    for (ChangeData cd : queryProvider.get().byProjectCommits(reviewBranch.project(), names)) {
+      for (PatchSet ps : cd.patchSets()) {
+        changes.put(ps.commitId(), cd);
+      }
+    }
+
+    for (Map.Entry<RevCommit, List<ReviewHistory.FileEntry>> e : pending.entrySet()) {
+      RevCommit commit = e.getKey();
+      ChangeData cd = changes.get(commit);
+      if (cd == null) {
+        cd = findByChangeId(reviewBranch, commit);
+      }
+      List<String> reviewedBy = cd != null ? getReviewers(cd) : List.of();
+      for (ReviewHistory.FileEntry file : e.getValue()) {
+        print(commit, cd, file, reviewedBy);
+      }
+    }
+    stdout.flush();
+    pending.clear();
+  }
+
+  /**
+   * The change of a commit which was submitted as a new commit, e.g. by cherry-pick.
+   */
+  @Nullable
+  private ChangeData findByChangeId(BranchNameKey reviewBranch, RevCommit commit) {
+    List<String> ids = commit.getFooterLines(FooterConstants.CHANGE_ID);
+    if (ids.isEmpty()) {
+      return null;
+    }
+    List<ChangeData> found =
+        queryProvider.get().byBranchKey(reviewBranch, Change.key(ids.get(ids.size() - 1)));
+    return found.isEmpty() ? null : found.get(0);
+  }
+
+  private List<String> getReviewers(ChangeData cd) {
+    List<String> reviewers = new ArrayList<>();
+    for (PatchSetApproval approval : cd.currentApprovals()) {
+      if (approval.value() == 0) {
+        continue;
+      }
+      Account.Id id = approval.accountId();
+      String who = accountCache.get(id)
+          .map(AccountState::account)
+          .map(a -> a.getNameEmail(id.toString()))
+          .orElse(id.toString());
+      String value = approval.value() > 0 ? "+" + approval.value() : "" + approval.value();
+      reviewers.add(approval.label() + value + " " + who);
+    }
+    return reviewers;
+  }
+
+  private void print(
+      RevCommit commit, @Nullable ChangeData cd, ReviewHistory.FileEntry file, List<String> reviewedBy) {
+    ExportInfo info = new ExportInfo();
+    info.commit = commit.name();
+    info.change = cd != null ? cd.getId().get() : null;
+    info.path = file.getPath();
+    info.blob = file.getBlob().name();
+    info.reviewTarget = file.getReviewTarget();
+    info.reviewedBy = reviewedBy;
+
+    if (format == Format.NDJSON) {
+      stdout.print(gson.toJson(info));
+    } else {
+      stdout.print(csv(info.commit) + "," + (info.change != null ? info.change : "") + ","
+          + csv(info.path) + "," + info.blob + "," + csv(info.reviewTarget) + ","
+          + csv(String.join("; ", reviewedBy)));
+    }
+    stdout.print('\n');
+  }
+
+  static String csv(@Nullable String value) {
+    if (value == null) {
+      return "";
+    }
+    if (!CSV_SPECIAL.matchesAnyOf(value)) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+}
@@ -0,0 +1,153 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.extensions.common.PluginDefinedInfo;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.server.DynamicOptions;
+import com.google.gerrit.server.change.ChangePluginDefinedInfoFactory;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Adds the {@link GetFollow.FollowInfo} of managed changes to change query results.
+ *
+ * All changes of a result set are handled at once: each repository is opened
+ * only once, the Review-Targets of a project are resolved together, and the
+ * changes are described in parallel by the {@link ParallelEvaluator}.
+ * Changes which are not managed by this plugin, or which the user cannot
+ * follow, get no attribute.
+ */
+@Singleton
+class FollowAttributeFactory implements ChangePluginDefinedInfoFactory {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final GitRepositoryManager gitManager;
+  private final FollowPreconditions preconditions;
+  private final GetFollow getFollow;
+  private final MatchReviewTarget matchReviewTarget;
+  private final ParallelEvaluator evaluator;
+  private final ReviewTargetResolver targetResolver;
+  private final UpdateUtil updateUtil;
+  private final RebaseUtil rebaseUtil;
+
+  @Inject
+  FollowAttributeFactory(
+      GitRepositoryManager gitManager,
+      FollowPreconditions preconditions,
+      GetFollow getFollow,
+      MatchReviewTarget matchReviewTarget,
+      ParallelEvaluator evaluator,
+      ReviewTargetResolver targetResolver,
+      UpdateUtil updateUtil,
+      RebaseUtil rebaseUtil) {
+    this.gitManager = requireNonNull(gitManager);
+    this.preconditions = requireNonNull(preconditions);
+    this.getFollow = requireNonNull(getFollow);
+    this.matchReviewTarget = requireNonNull(matchReviewTarget);
+    this.evaluator = requireNonNull(evaluator);
+    this.targetResolver = requireNonNull(targetResolver);
+    this.updateUtil = requireNonNull(updateUtil);
+    this.rebaseUtil = requireNonNull(rebaseUtil);
+  }
+
+  @Override
+  public Map<Change.Id, PluginDefinedInfo> createPluginDefinedInfos(
+      Collection<ChangeData> cds, DynamicOptions.BeanProvider beanProvider, String plugin) {
+    Map<Project.NameKey, List<ChangeData>> byProject = new LinkedHashMap<>();
+    for (ChangeData cd : cds) {
+      if (preconditions.canFollow(cd)) {
+        byProject.computeIfAbsent(cd.project(), p -> new ArrayList<>()).add(cd);
+      }
+    }
+
+    Map<Change.Id, PluginDefinedInfo> infos = new ConcurrentHashMap<>();
+    for (Map.Entry<Project.NameKey, List<ChangeData>> e : byProject.entrySet()) {
+      addInfos(e.getKey(), e.getValue(), infos);
+    }
+    return infos;
+  }
+
+  private void addInfos(
+      Project.NameKey project,
+      List<ChangeData> changes,
+      Map<Change.Id, PluginDefinedInfo> infos) {
+    try (Repository repo = gitManager.openRepository(project)) {
+      try (RevWalk rw = new RevWalk(repo)) {
+        targetResolver.prefetch(
+            project, repo, rw, changes.stream().map(ChangeData::change).collect(toList()));
+      }
+      for (ChangeData cd : changes) {
+        // ChangeData loads lazily, do it before the threads share it
+        cd.currentPatchSet();
+      }
+
+      // RevWalks are not thread-safe, every change gets its own UpdateTree
+      evaluator.evaluate(changes, cd -> {
+        try (UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil)) {
+          update.setTargetResolver(
+              targetResolver.forRepository(project, repo, update.getRevWalk()));
+          infos.put(cd.getId(), describe(cd, update));
+          return true;
+        } catch (RestApiException | StorageException | UncheckedExecutionException | IOException e) {
+          logger.atWarning().withCause(e).log(
+              "failure computing follow attribute of change %s", cd.getId());
+          return false;
+        }
+      });
+
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("failure opening repository %s", project);
+    }
+  }
+
+  private GetFollow.FollowInfo describe(ChangeData cd, UpdateTree update)
+      throws IOException, RestApiException {
+    Change change = cd.change();
+    GetFollow.FollowInfo info = new GetFollow.FollowInfo();
+    info.onReviewBranch = true;
+
+    update.useChange(change);
+    getFollow.describe(update, change, cd.currentPatchSet(), info);
+    if (info.validReviewTarget) {
+      // has:selected compares with the current parent, which is only right without a rebase
+      info.upToDate = !info.rebaseRequired && matchReviewTarget.checkReviewTarget(change, update);
+    }
+    return info;
+  }
+}
@@ -0,0 +1,128 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.base.Throwables;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.server.update.UpdateException;
+import com.google.inject.Singleton;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.jgit.errors.ConfigInvalidException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Run identical concurrent follow requests only once.
+ *
+ * The first request for a key does the work, all requests arriving while it
+ * is running wait for it and get the same result (or the same exception).
+ */
+@Singleton
+class FollowCoalescer {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  interface Computation<T> {
+    T call() throws IOException, RestApiException, ConfigInvalidException, UpdateException;
+  }
+
+  static final class Key {
+    private final PatchSet.Id patchSet;
+    private final boolean doUpdate;
+    private final String reviewTarget;
+    private final String reviewFiles;
+
+    Key(PatchSet.Id patchSet, boolean doUpdate, String reviewTarget, String reviewFiles) {
+      this.patchSet = requireNonNull(patchSet);
+      this.doUpdate = doUpdate;
+      this.reviewTarget = reviewTarget;
+      this.reviewFiles = reviewFiles;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return patchSet.equals(other.patchSet)
+          && doUpdate == other.doUpdate
+          && Objects.equals(reviewTarget, other.reviewTarget)
+          && Objects.equals(reviewFiles, other.reviewFiles);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(patchSet, doUpdate, reviewTarget, reviewFiles);
+    }
+
+    @Override
+    public String toString() {
+      return patchSet + (doUpdate ? " update" : " preview");
+    }
+  }
+
+  private final ConcurrentMap<Key, CompletableFuture<Object>> running = new ConcurrentHashMap<>();
+
+  @SuppressWarnings("unchecked")
+  <T> T run(Key key, Computation<T> computation)
+      throws IOException, RestApiException, ConfigInvalidException, UpdateException {
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> other = running.putIfAbsent(key, mine);
+    if (other != null) {
+      logger.atFine().log("joining running follow request for %s", key);
+      return (T) await(other);
+    }
+
+    try {
+      T result = computation.call();
+      mine.complete(result);
+      return result;
+    } catch (Throwable e) {
+      // Errors too, otherwise waiters would block forever
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      running.remove(key, mine);
+    }
+  }
+
+  private static Object await(CompletableFuture<Object> future)
+      throws IOException, RestApiException, ConfigInvalidException, UpdateException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StorageException("interrupted while waiting for follow request", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      Throwables.throwIfInstanceOf(cause, IOException.class);
+      Throwables.throwIfInstanceOf(cause, RestApiException.class);
+      Throwables.throwIfInstanceOf(cause, ConfigInvalidException.class);
+      Throwables.throwIfInstanceOf(cause, UpdateException.class);
+      Throwables.throwIfUnchecked(cause);
+      throw new StorageException(cause);
+    }
+  }
+}
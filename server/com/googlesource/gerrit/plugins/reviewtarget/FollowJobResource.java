@@ -0,0 +1,43 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.extensions.restapi.RestResource;
+import com.google.gerrit.extensions.restapi.RestView;
+import com.google.gerrit.server.change.ChangeResource;
+import com.google.inject.TypeLiteral;
+
+import static java.util.Objects.requireNonNull;
+
+class FollowJobResource implements RestResource {
+  static final TypeLiteral<RestView<FollowJobResource>> FOLLOW_JOB_KIND =
+      new TypeLiteral<>() {};
+
+  private final ChangeResource change;
+  private final FollowJobs.FollowJob job;
+
+  FollowJobResource(ChangeResource change, FollowJobs.FollowJob job) {
+    this.change = requireNonNull(change);
+    this.job = requireNonNull(job);
+  }
+
+  ChangeResource getChange() {
+    return change;
+  }
+
+  FollowJobs.FollowJob getJob() {
+    return job;
+  }
+}
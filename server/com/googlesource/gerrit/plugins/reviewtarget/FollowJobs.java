@@ -0,0 +1,200 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.restapi.ResourceConflictException;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.update.UpdateException;
+import com.google.gerrit.server.util.ManualRequestContext;
+import com.google.gerrit.server.util.ThreadLocalRequestContext;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.lib.ProgressMonitor;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.HOURS;
+
+/**
+ * Follow requests which run in the background on a dedicated executor.
+ */
+@Singleton
+class FollowJobs implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+  static class FollowJobInfo {
+    String id;
+    Status status;
+    long entriesWalked;
+    PostFollow.FollowInfo result;
+    String error;
+  }
+
+  interface Computation {
+    PostFollow.FollowInfo call(ProgressMonitor monitor)
+        throws IOException, RestApiException, ConfigInvalidException, UpdateException;
+  }
+
+  static class FollowJob extends EmptyProgressMonitor {
+    private final String id;
+    private final Change.Id changeId;
+    private final AtomicLong entriesWalked = new AtomicLong();
+    private volatile Status status = Status.QUEUED;
+    private volatile PostFollow.FollowInfo result;
+    private volatile String error;
+    private volatile boolean cancelled;
+
+    FollowJob(Change.Id changeId) {
+      this.id = UUID.randomUUID().toString();
+      this.changeId = requireNonNull(changeId);
+    }
+
+    @Override
+    public void update(int completed) {
+      entriesWalked.addAndGet(completed);
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    FollowJobInfo toInfo() {
+      FollowJobInfo info = new FollowJobInfo();
+      info.id = id;
+      info.status = status;
+      info.entriesWalked = entriesWalked.get();
+      info.result = result;
+      info.error = error;
+      return info;
+    }
+  }
+
+  private final WorkQueue workQueue;
+  private final ThreadLocalRequestContext requestContext;
+  private final Configuration cfg;
+  // finished jobs, running ones are only in running so that they never expire
+  private final Cache<String, FollowJob> jobs =
+      CacheBuilder.newBuilder().expireAfterWrite(1, HOURS).build();
+  private final ConcurrentMap<FollowCoalescer.Key, FollowJob> running = new ConcurrentHashMap<>();
+  private final AtomicInteger active = new AtomicInteger();
+  private ScheduledExecutorService executor;
+
+  @Inject
+  FollowJobs(WorkQueue workQueue, ThreadLocalRequestContext requestContext, Configuration cfg) {
+    this.workQueue = requireNonNull(workQueue);
+    this.requestContext = requireNonNull(requestContext);
+    this.cfg = requireNonNull(cfg);
+  }
+
+  @Override
+  public void start() {
+    executor = workQueue.createQueue(cfg.getFollowJobThreads(), "ReviewTarget-Follow");
+  }
+
+  @Override
+  public void stop() {
+    for (FollowJob job : running.values()) {
+      job.cancelled = true;
+    }
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Start a new job, or return the already running job for an identical request.
+   */
+  FollowJob submit(Change.Id changeId, FollowCoalescer.Key key, CurrentUser user, Computation computation)
+      throws ResourceConflictException {
+    FollowJob existing = running.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    if (active.incrementAndGet() > cfg.getMaxFollowJobs()) {
+      active.decrementAndGet();
+      throw new ResourceConflictException("too many follow jobs are running, try again later");
+    }
+
+    FollowJob job = new FollowJob(changeId);
+    existing = running.putIfAbsent(key, job);
+    if (existing != null) {
+      active.decrementAndGet();
+      return existing;
+    }
+    try {
+      executor.submit(() -> run(key, user, job, computation));
+    } catch (RejectedExecutionException e) {
+      running.remove(key, job);
+      active.decrementAndGet();
+      throw new ResourceConflictException("follow jobs are not accepted while the plugin stops");
+    }
+    return job;
+  }
+
+  @Nullable
+  FollowJob get(Change.Id changeId, String id) {
+    FollowJob job = jobs.getIfPresent(id);
+    if (job == null) {
+      // at most maxFollowJobs
+      job = running.values().stream().filter(j -> j.id.equals(id)).findFirst().orElse(null);
+    }
+    if (job == null || !job.changeId.equals(changeId)) {
+      return null;
+    }
+    return job;
+  }
+
+  private void run(FollowCoalescer.Key key, CurrentUser user, FollowJob job, Computation computation) {
+    job.status = Status.RUNNING;
+    // the computation runs as the user who started the job
+    ManualRequestContext ctx = new ManualRequestContext(user, requestContext);
+    try {
+      job.result = computation.call(job);
+      job.status = Status.DONE;
+    } catch (Exception e) {
+      logger.atWarning().withCause(e).log("follow job %s for change %s failed", job.id, job.changeId);
+      // other messages are internal, they are only logged
+      job.error = e instanceof RestApiException ? e.getMessage() : "internal error";
+      job.status = Status.FAILED;
+    } finally {
+      ctx.close();
+      jobs.put(job.id, job);
+      running.remove(key, job);
+      active.decrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.extensions.restapi.AuthException;
+import com.google.gerrit.extensions.restapi.ChildCollection;
+import com.google.gerrit.extensions.restapi.IdString;
+import com.google.gerrit.extensions.restapi.ResourceNotFoundException;
+import com.google.gerrit.extensions.restapi.RestView;
+import com.google.gerrit.server.change.ChangeResource;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import static java.util.Objects.requireNonNull;
+
+@Singleton
+class FollowJobsCollection implements ChildCollection<ChangeResource, FollowJobResource> {
+  private final DynamicMap<RestView<FollowJobResource>> views;
+  private final FollowJobs jobs;
+  private final FollowPreconditions preconditions;
+
+  @Inject
+  FollowJobsCollection(
+      DynamicMap<RestView<FollowJobResource>> views,
+      FollowJobs jobs,
+      FollowPreconditions preconditions) {
+    this.views = requireNonNull(views);
+    this.jobs = requireNonNull(jobs);
+    this.preconditions = requireNonNull(preconditions);
+  }
+
+  @Override
+  public RestView<ChangeResource> list() throws ResourceNotFoundException {
+    throw new ResourceNotFoundException();
+  }
+
+  @Override
+  public FollowJobResource parse(ChangeResource parent, IdString id)
+      throws ResourceNotFoundException, AuthException {
+    preconditions.assertAddPatchSetPermission(parent);
+    FollowJobs.FollowJob job = jobs.get(parent.getId(), id.get());
+    if (job == null) {
+      throw new ResourceNotFoundException(id);
+    }
+    return new FollowJobResource(parent, job);
+  }
+
+  @Override
+  public DynamicMap<RestView<FollowJobResource>> views() {
+    return views;
+  }
+}
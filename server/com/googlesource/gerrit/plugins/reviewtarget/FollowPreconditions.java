@@ -21,25 +21,25 @@ import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.change.ChangeResource;
 import com.google.gerrit.server.permissions.PermissionBackend;
 import com.google.gerrit.server.permissions.ChangePermission;
+import com.google.gerrit.server.query.change.ChangeData;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
-import org.eclipse.jgit.ignore.FastIgnoreRule;
 
 import static java.util.Objects.requireNonNull;
 
 @Singleton
 class FollowPreconditions {
-  private final FastIgnoreRule reviewBranchRule;
+  private final ProjectConfigCache projectConfig;
   private final Provider<CurrentUser> userProvider;
   private final PermissionBackend permissionBackend;
 
   @Inject
   public FollowPreconditions(
-      Configuration cfg,
+      ProjectConfigCache projectConfig,
       Provider<CurrentUser> userProvider,
       PermissionBackend permissionBackend) {
-    this.reviewBranchRule = new FastIgnoreRule(cfg.getReviewBranch());
+    this.projectConfig = requireNonNull(projectConfig);
     this.userProvider = requireNonNull(userProvider);
     this.permissionBackend = requireNonNull(permissionBackend);
   }
@@ -61,8 +61,7 @@ class FollowPreconditions {
   }
 
   protected boolean onReviewBranch(Change change) {
-    String branchName = change.getDest().branch();
-    return reviewBranchRule.isMatch(branchName, false);
+    return projectConfig.forReviewBranch(change.getDest()) != null;
   }
 
   void assertAddPatchSetPermission(ChangeResource rsrc) throws AuthException {
@@ -72,7 +71,19 @@ class FollowPreconditions {
   }
 
   protected boolean canAddPatchSet(ChangeResource rsrc) {
+    return canAddPatchSet(rsrc.getChangeData());
+  }
+
+  protected boolean canAddPatchSet(ChangeData cd) {
     PermissionBackend.WithUser userPermission = permissionBackend.user(userProvider.get());
-    return userPermission.change(rsrc.getChangeData()).testOrFalse(ChangePermission.ADD_PATCH_SET);
+    return userPermission.change(cd).testOrFalse(ChangePermission.ADD_PATCH_SET);
+  }
+
+  /**
+   * Both checks above for changes which are not a resource, e.g. query results.
+   */
+  boolean canFollow(ChangeData cd) {
+    Change change = cd.change();
+    return change.isNew() && onReviewBranch(change) && canAddPatchSet(cd);
   }
 }
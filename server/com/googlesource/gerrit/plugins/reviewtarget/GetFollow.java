@@ -15,59 +15,95 @@
 package com.googlesource.gerrit.plugins.reviewtarget;
 
 import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.extensions.common.PluginDefinedInfo;
+import com.google.gerrit.extensions.restapi.ETagView;
 import com.google.gerrit.extensions.restapi.ResourceConflictException;
 import com.google.gerrit.extensions.restapi.Response;
 import com.google.gerrit.extensions.restapi.RestApiException;
-import com.google.gerrit.extensions.restapi.RestReadView;
 import com.google.gerrit.server.change.RebaseUtil;
 import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.gerrit.server.change.ChangeResource;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
 import com.google.gerrit.server.update.UpdateException;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.google.inject.Singleton;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.errors.ConfigInvalidException;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
 @Singleton
-class GetFollow implements RestReadView<ChangeResource> {
+class GetFollow implements ETagView<ChangeResource> {
 
-  static class FollowInfo {
+  static class ReviewGroupInfo {
+    String reviewTarget;
+    String reviewFiles;
+    String version;
+  }
+
+  static class FollowInfo extends PluginDefinedInfo {
     boolean onReviewBranch;
     boolean validReviewTarget;
     boolean rebaseRequired;
+    Boolean upToDate;
+    Boolean targetReachable;
     String version;
     String followVersion;
     String followBranch;
     String reviewTarget;
     String reviewFiles;
+    List<ReviewGroupInfo> reviewGroups;
   }
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
   private final GitRepositoryManager gitManager;
   private final Configuration cfg;
+  private final ProjectConfigCache projectConfig;
   private final FollowPreconditions preconditions;
   private final UpdateUtil updateUtil;
   private final RebaseUtil rebaseUtil;
+  private final TargetReachability reachability;
+  private final ReviewTargetResolver targetResolver;
+  private final Provider<InternalChangeQuery> queryProvider;
 
   @Inject
   GetFollow(
       GitRepositoryManager gitManager,
       Configuration cfg,
+      ProjectConfigCache projectConfig,
       FollowPreconditions preconditions,
       UpdateUtil updateUtil,
-      RebaseUtil rebaseUtil) {
+      RebaseUtil rebaseUtil,
+      TargetReachability reachability,
+      ReviewTargetResolver targetResolver,
+      Provider<InternalChangeQuery> queryProvider) {
     this.gitManager = requireNonNull(gitManager);
     this.cfg = requireNonNull(cfg);
+    this.projectConfig = requireNonNull(projectConfig);
     this.preconditions = requireNonNull(preconditions);
     this.updateUtil = requireNonNull(updateUtil);
     this.rebaseUtil = requireNonNull(rebaseUtil);
+    this.reachability = requireNonNull(reachability);
+    this.targetResolver = requireNonNull(targetResolver);
+    this.queryProvider = requireNonNull(queryProvider);
   }
 
   @Override
@@ -85,25 +121,128 @@ class GetFollow implements RestReadView<ChangeResource> {
         Repository repo = gitManager.openRepository(change.getProject());
         UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil);
     ) {
+      update.setTargetResolver(
+          targetResolver.forRepository(change.getProject(), repo, update.getRevWalk()));
       update.useChange(change);
+      describe(update, change, rsrc.getNotes().getCurrentPatchSet(), resp);
+    }
+    return Response.ok(resp);
+  }
 
-      resp.followBranch = cfg.getFollowBranch();
-      update.useFollowBranch(cfg.getFollowBranch());
-      resp.followVersion = update.getFollowVersion(cfg.getVersionPrefix(), cfg.getVersionDropPrefix());
+  /**
+   * Everything the response depends on, without computing it:
+   * the change including its current patch set, the review branch and the
+   * current patch set of a parent change used for the rebase check, the
+   * follow branch and Review-Target refs with their version tags, and the
+   * plugin configuration.
+   */
+  @Override
+  public String getETag(ChangeResource rsrc) {
+    Change change = rsrc.getChange();
+    Hasher h = Hashing.murmur3_128().newHasher()
+        .putString(rsrc.getETag(), UTF_8)
+        .putString(cfg.getFingerprint(), UTF_8);
 
-      resp.validReviewTarget = update.isValidReviewTarget();
-      if (!resp.validReviewTarget) {
-        return Response.ok(resp);
+    try (
+        Repository repo = gitManager.openRepository(change.getProject());
+        RevWalk rw = new RevWalk(repo);
+    ) {
+      RevCommit current = rw.parseCommit(rsrc.getNotes().getCurrentPatchSet().commitId());
+      putRef(h, repo, change.getDest().branch());
+      if (current.getParentCount() > 0) {
+        putParentChanges(h, change, current.getParent(0));
       }
+      BranchPair pair = projectConfig.forReviewBranch(change.getDest());
+      if (pair != null) {
+        putRef(h, repo, pair.getFollowBranch());
+      }
+      for (String reviewTarget : updateUtil.getFooters(current).getReviewTargets()) {
+        putRef(h, repo, reviewTarget);
+      }
+    } catch (IOException | StorageException e) {
+      logger.atWarning().withCause(e).log("cannot compute ETag for change %s", change.getId());
+      return null;
+    }
+    return h.hash().toString();
+  }
 
-      update.rebaseWhenNecessary(rsrc.getNotes().getCurrentPatchSet());
+  /**
+   * Like {@link RebaseUtil#findBaseRevision}, a parent which is a patch set
+   * of another change on the branch is replaced by its current patch set.
+   */
+  private void putParentChanges(Hasher h, Change change, ObjectId parent) {
+    for (ChangeData cd : queryProvider.get().byBranchCommit(change.getDest(), parent.name())) {
+      h.putInt(cd.getId().get());
+      h.putString(cd.change().getStatus().name(), UTF_8);
+      h.putString(cd.currentPatchSet().commitId().name(), UTF_8);
+    }
+  }
 
-      resp.reviewTarget = update.getReviewTarget();
-      resp.reviewFiles = update.getReviewFiles();
-      resp.version = update.getTargetVersion(cfg.getVersionPrefix(), cfg.getVersionDropPrefix());
-      resp.rebaseRequired = update.isRebased();
+  private void putRef(Hasher h, Repository repo, String name) throws IOException {
+    h.putString(name, UTF_8);
+    Ref ref = repo.findRef(name);
+    if (ref == null || ref.getObjectId() == null) {
+      h.putBoolean(false);
+      return;
+    }
+    ref = repo.getRefDatabase().peel(ref);
+    ObjectId id = ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : ref.getObjectId();
+    h.putString(id.name(), UTF_8);
+
+    // the version is the name of a tag pointing to the same commit
+    for (Ref tip : repo.getRefDatabase().getTipsWithSha1(id)) {
+      if (tip.getName().startsWith(cfg.getVersionPrefix())) {
+        h.putString(tip.getName(), UTF_8);
+      }
+    }
+  }
+
+  /**
+   * Fill in everything but `onReviewBranch` and `upToDate` for `change`,
+   * which has to be already used by `update`.
+   */
+  void describe(UpdateTree update, Change change, PatchSet currentPatchSet, FollowInfo info)
+      throws IOException, RestApiException {
+    BranchPair pair = projectConfig.forReviewBranch(change.getDest());
+    if (pair != null) {
+      info.followBranch = pair.getFollowBranch();
+      update.useFollowBranch(pair.getFollowBranch());
+    }
+    info.followVersion = update.getFollowVersion(cfg.getVersionPrefix(), cfg.getVersionDropPrefix());
+
+    info.validReviewTarget = update.isValidReviewTarget();
+    if (!info.validReviewTarget) {
+      return;
+    }
+
+    if (update.getFollowTip() != null) {
+      info.targetReachable = reachability.findUnreachableTarget(update) == null;
+    }
+
+    update.rebaseWhenNecessary(currentPatchSet);
+
+    info.reviewTarget = update.getReviewTarget();
+    info.reviewFiles = update.getReviewFiles();
+    info.version = update.getTargetVersion(cfg.getVersionPrefix(), cfg.getVersionDropPrefix());
+    info.rebaseRequired = update.isRebased();
+
+    if (!update.getExtraGroups().isEmpty()) {
+      info.reviewGroups = new ArrayList<>();
+      info.reviewGroups.add(groupInfo(info.reviewTarget, info.reviewFiles, info.version));
+      for (UpdateTree.Group group : update.getExtraGroups()) {
+        info.reviewGroups.add(groupInfo(
+            group.getReviewTarget(),
+            group.getReviewFiles(),
+            update.getVersion(group.getTarget(), cfg.getVersionPrefix(), cfg.getVersionDropPrefix())));
+      }
     }
-    return Response.ok(resp);
   }
 
+  private static ReviewGroupInfo groupInfo(String reviewTarget, String reviewFiles, String version) {
+    ReviewGroupInfo group = new ReviewGroupInfo();
+    group.reviewTarget = reviewTarget;
+    group.reviewFiles = reviewFiles;
+    group.version = version;
+    return group;
+  }
 }
@@ -0,0 +1,196 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.restapi.BinaryResult;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.extensions.restapi.RestReadView;
+import com.google.gerrit.extensions.restapi.UnprocessableEntityException;
+import com.google.gerrit.json.OutputFormat;
+import com.google.gerrit.server.change.ChangeResource;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.kohsuke.args4j.Option;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The upstream commits between the current Review-Target and a new one
+ * which touch the selected Review-Files.
+ *
+ * The result is streamed as one JSON object per line, newest commit first.
+ */
+class GetFollowLog implements RestReadView<ChangeResource> {
+
+  static class LogEntry {
+    String commit;
+    String subject;
+    int paths;
+  }
+
+  private static final int FLUSH_INTERVAL = 16;
+
+  private final GitRepositoryManager gitManager;
+  private final ProjectConfigCache projectConfig;
+  private final FollowPreconditions preconditions;
+  private final UpdateUtil updateUtil;
+  private final RebaseUtil rebaseUtil;
+  private final ReviewTargetResolver targetResolver;
+
+  @Option(name = "--target", metaVar = "REF", usage = "new Review-Target, the follow branch by default")
+  private String target;
+
+  @Option(name = "--limit", aliases = {"-n"}, metaVar = "CNT", usage = "maximum number of commits")
+  private int limit;
+
+  @Inject
+  GetFollowLog(
+      GitRepositoryManager gitManager,
+      ProjectConfigCache projectConfig,
+      FollowPreconditions preconditions,
+      UpdateUtil updateUtil,
+      RebaseUtil rebaseUtil,
+      ReviewTargetResolver targetResolver) {
+    this.gitManager = requireNonNull(gitManager);
+    this.projectConfig = requireNonNull(projectConfig);
+    this.preconditions = requireNonNull(preconditions);
+    this.updateUtil = requireNonNull(updateUtil);
+    this.rebaseUtil = requireNonNull(rebaseUtil);
+    this.targetResolver = requireNonNull(targetResolver);
+  }
+
+  @Override
+  public Response<BinaryResult> apply(ChangeResource rsrc) throws IOException, RestApiException {
+    preconditions.assertAddPatchSetPermission(rsrc);
+    preconditions.assertCanChangeReviewTarget(rsrc);
+
+    Change change = rsrc.getChange();
+    ObjectId from;
+    ObjectId to;
+    ReviewFilter filter;
+
+    // resolve everything before streaming, so that errors get a proper status code
+    try (
+        Repository repo = gitManager.openRepository(change.getProject());
+        UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil);
+    ) {
+      update.setTargetResolver(
+          targetResolver.forRepository(change.getProject(), repo, update.getRevWalk()));
+      update.useChange(change);
+      if (!update.isValidReviewTarget()) {
+        throw new UnprocessableEntityException(
+            "Review-Target " + update.getReviewTarget() + " does not exist");
+      }
+
+      String newTarget = target;
+      if (newTarget == null) {
+        BranchPair pair = projectConfig.forReviewBranch(change.getDest());
+        newTarget = pair != null ? pair.getFollowBranch() : null;
+      }
+      RevCommit newCommit = newTarget != null
+          ? update.resolve(newTarget)
+          : null;
+      if (newCommit == null) {
+        throw new UnprocessableEntityException("new Review-Target " + newTarget + " does not exist");
+      }
+
+      from = update.getTarget().copy();
+      to = newCommit.copy();
+      filter = update.getReviewFilter();
+    }
+
+    Project.NameKey project = change.getProject();
+    BinaryResult result = new BinaryResult() {
+      @Override
+      public void writeTo(OutputStream out) throws IOException {
+        writeLog(project, from, to, filter, out);
+      }
+    };
+    return Response.ok(result.setContentType("application/x-ndjson").setCharacterEncoding(UTF_8));
+  }
+
+  private void writeLog(
+      Project.NameKey project, ObjectId from, ObjectId to, ReviewFilter filter, OutputStream out)
+      throws IOException {
+    Gson gson = OutputFormat.JSON_COMPACT.newGson();
+    Writer writer = new OutputStreamWriter(out, UTF_8);
+
+    try (
+        Repository repo = gitManager.openRepository(project);
+        RevWalk rw = new RevWalk(repo);
+        TreeWalk tw = new TreeWalk(repo, rw.getObjectReader());
+    ) {
+      rw.setTreeFilter(new ReviewTreeFilter(filter));
+      // do not buffer the whole range to simplify the history
+      rw.setRewriteParents(false);
+      rw.markStart(rw.parseCommit(to));
+      rw.markUninteresting(rw.parseCommit(from));
+      tw.setFilter(new ReviewTreeFilter(filter));
+      tw.setRecursive(true);
+
+      int count = 0;
+      for (RevCommit commit : rw) {
+        LogEntry entry = new LogEntry();
+        entry.commit = commit.name();
+        entry.subject = commit.getShortMessage();
+        entry.paths = countPaths(rw, tw, commit);
+        writer.write(gson.toJson(entry));
+        writer.write('\n');
+
+        count++;
+        if (count % FLUSH_INTERVAL == 0) {
+          writer.flush();
+        }
+        if (limit > 0 && count >= limit) {
+          break;
+        }
+      }
+    }
+    writer.flush();
+  }
+
+  private static int countPaths(RevWalk rw, TreeWalk tw, RevCommit commit) throws IOException {
+    if (commit.getParentCount() == 0) {
+      tw.reset(commit.getTree());
+    } else {
+      RevCommit parent = commit.getParent(0);
+      rw.parseHeaders(parent);
+      tw.reset(parent.getTree(), commit.getTree());
+    }
+    int paths = 0;
+    while (tw.next()) {
+      paths++;
+    }
+    return paths;
+  }
+}
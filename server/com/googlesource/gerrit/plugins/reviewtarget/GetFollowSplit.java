@@ -0,0 +1,160 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.extensions.restapi.BadRequestException;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.extensions.restapi.RestReadView;
+import com.google.gerrit.extensions.restapi.UnprocessableEntityException;
+import com.google.gerrit.server.change.ChangeResource;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.inject.Inject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.kohsuke.args4j.Option;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Proposed Review-Files which split the upstream changes between the review
+ * branch and a new Review-Target into parts of roughly equal size.
+ */
+class GetFollowSplit implements RestReadView<ChangeResource> {
+
+  static class SplitInfo {
+    String reviewTarget;
+    int files;
+    long bytes;
+    List<PartInfo> parts;
+    List<PartInfo> candidates;
+  }
+
+  static class PartInfo {
+    String reviewFiles;
+    int files;
+    long bytes;
+  }
+
+  private final GitRepositoryManager gitManager;
+  private final ProjectConfigCache projectConfig;
+  private final FollowPreconditions preconditions;
+  private final UpdateUtil updateUtil;
+  private final RebaseUtil rebaseUtil;
+  private final ReviewTargetResolver targetResolver;
+  private final List<String> candidates = new ArrayList<>();
+
+  @Option(name = "--target", metaVar = "REF", usage = "new Review-Target, the follow branch by default")
+  private String target;
+
+  @Option(name = "--parts", aliases = {"-p"}, metaVar = "CNT", usage = "number of parts")
+  private int parts = 2;
+
+  @Option(name = "--weight", usage = "balance the parts by FILES or BYTES")
+  private ReviewSplitter.Weight weight = ReviewSplitter.Weight.BYTES;
+
+  @Option(name = "--candidate", metaVar = "FILES", usage = "Review-Files to measure, can be repeated")
+  void addCandidate(String reviewFiles) {
+    candidates.add(reviewFiles);
+  }
+
+  @Inject
+  GetFollowSplit(
+      GitRepositoryManager gitManager,
+      ProjectConfigCache projectConfig,
+      FollowPreconditions preconditions,
+      UpdateUtil updateUtil,
+      RebaseUtil rebaseUtil,
+      ReviewTargetResolver targetResolver) {
+    this.gitManager = requireNonNull(gitManager);
+    this.projectConfig = requireNonNull(projectConfig);
+    this.preconditions = requireNonNull(preconditions);
+    this.updateUtil = requireNonNull(updateUtil);
+    this.rebaseUtil = requireNonNull(rebaseUtil);
+    this.targetResolver = requireNonNull(targetResolver);
+  }
+
+  @Override
+  public Response<SplitInfo> apply(ChangeResource rsrc) throws IOException, RestApiException {
+    preconditions.assertAddPatchSetPermission(rsrc);
+    preconditions.assertCanChangeReviewTarget(rsrc);
+    if (parts < 1) {
+      throw new BadRequestException("--parts must be at least 1");
+    }
+
+    Change change = rsrc.getChange();
+    try (
+        Repository repo = gitManager.openRepository(change.getProject());
+        UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil);
+    ) {
+      update.setTargetResolver(
+          targetResolver.forRepository(change.getProject(), repo, update.getRevWalk()));
+      update.useChange(change);
+
+      String newTarget = target;
+      if (newTarget == null) {
+        BranchPair pair = projectConfig.forReviewBranch(change.getDest());
+        newTarget = pair != null ? pair.getFollowBranch() : null;
+      }
+      RevCommit newCommit = newTarget != null
+          ? update.resolve(newTarget)
+          : null;
+      if (newCommit == null) {
+        throw new UnprocessableEntityException("new Review-Target " + newTarget + " does not exist");
+      }
+
+      List<ReviewFilter> filters = new ArrayList<>(candidates.size());
+      for (String lines : candidates) {
+        filters.add(updateUtil.getReviewFilter(lines));
+      }
+      RevWalk rw = update.getRevWalk();
+      ReviewSplitter splitter = new ReviewSplitter(rw.getObjectReader(), filters);
+      splitter.scan(rw.parseTree(update.getParent().getTree()), rw.parseTree(newCommit.getTree()));
+
+      SplitInfo info = new SplitInfo();
+      info.reviewTarget = newTarget;
+      info.files = splitter.getFiles();
+      info.bytes = splitter.getBytes();
+      info.parts = toInfos(splitter.split(parts, weight), null);
+      if (!candidates.isEmpty()) {
+        info.candidates = toInfos(splitter.getCandidateSizes(), candidates);
+      }
+      return Response.ok(info);
+    }
+  }
+
+  private static List<PartInfo> toInfos(
+      List<ReviewSplitter.Part> parts, @Nullable List<String> reviewFiles) {
+    List<PartInfo> infos = new ArrayList<>(parts.size());
+    for (int i = 0; i < parts.size(); i++) {
+      PartInfo info = new PartInfo();
+      info.reviewFiles = reviewFiles != null ? reviewFiles.get(i) : parts.get(i).getReviewFiles();
+      info.files = parts.get(i).getFiles();
+      info.bytes = parts.get(i).getBytes();
+      infos.add(info);
+    }
+    return infos;
+  }
+}
@@ -0,0 +1,191 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.Weigher;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.extensions.restapi.BadRequestException;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.extensions.restapi.RestReadView;
+import com.google.gerrit.extensions.restapi.UnprocessableEntityException;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.change.ChangeResource;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.kohsuke.args4j.Option;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Inserted and deleted lines of the files in some directories of a follow preview.
+ *
+ * The preview itself compares no file contents, the web UI asks for the
+ * files of a directory when it is opened. The blobs which a selection
+ * changes are kept per patch set and selection, so that opening further
+ * directories does not rewrite the tree again.
+ */
+class GetFollowStats implements RestReadView<ChangeResource> {
+  private static final int CACHE_SIZE = 1_000_000;
+  static final long EXPIRE_MINUTES = 10;
+  static final String CACHE_NAME = "review_changed_blobs";
+  static final String ROOT = "/";
+
+  static class Module extends CacheModule {
+    @Override
+    protected void configure() {
+      cache(CACHE_NAME, FollowCoalescer.Key.class, ChangedBlobs.class)
+          .maximumWeight(CACHE_SIZE)
+          .weigher(PathWeigher.class)
+          .expireAfterWrite(Duration.ofMinutes(EXPIRE_MINUTES));
+    }
+  }
+
+  /**
+   * The old and new blob of each file which a selection changes.
+   */
+  static class ChangedBlobs {
+    private final Map<String, ObjectId> oldBlobs = new TreeMap<>();
+    private final Map<String, ObjectId> newBlobs = new TreeMap<>();
+  }
+
+  /**
+   * Entries are weighed by their number of paths.
+   */
+  static class PathWeigher implements Weigher<FollowCoalescer.Key, ChangedBlobs> {
+    @Override
+    public int weigh(FollowCoalescer.Key key, ChangedBlobs blobs) {
+      return 1 + blobs.oldBlobs.size();
+    }
+  }
+
+  private final GitRepositoryManager gitManager;
+  private final FollowPreconditions preconditions;
+  private final UpdateUtil updateUtil;
+  private final RebaseUtil rebaseUtil;
+  private final ReviewTargetResolver targetResolver;
+  private final LineStats lineStats;
+  private final Cache<FollowCoalescer.Key, ChangedBlobs> changedBlobs;
+  private final Set<String> dirs = new HashSet<>();
+
+  @Option(name = "--target", metaVar = "REF", usage = "new Review-Target, the current one by default")
+  private String target;
+
+  @Option(name = "--files", metaVar = "FILES", usage = "new Review-Files, the current ones by default")
+  private String files;
+
+  @Option(name = "--dir", metaVar = "DIR", usage = "directory of the files, / for the top level, can be repeated")
+  void addDir(String dir) {
+    dirs.add(dir);
+  }
+
+  @Inject
+  GetFollowStats(
+      GitRepositoryManager gitManager,
+      FollowPreconditions preconditions,
+      UpdateUtil updateUtil,
+      RebaseUtil rebaseUtil,
+      ReviewTargetResolver targetResolver,
+      LineStats lineStats,
+      @Named(CACHE_NAME) Cache<FollowCoalescer.Key, ChangedBlobs> changedBlobs) {
+    this.gitManager = requireNonNull(gitManager);
+    this.preconditions = requireNonNull(preconditions);
+    this.updateUtil = requireNonNull(updateUtil);
+    this.rebaseUtil = requireNonNull(rebaseUtil);
+    this.targetResolver = requireNonNull(targetResolver);
+    this.lineStats = requireNonNull(lineStats);
+    this.changedBlobs = requireNonNull(changedBlobs);
+  }
+
+  @Override
+  public Response<Map<String, LineStats.FileStats>> apply(ChangeResource rsrc)
+      throws IOException, RestApiException {
+    preconditions.assertAddPatchSetPermission(rsrc);
+    preconditions.assertCanChangeReviewTarget(rsrc);
+    if (dirs.isEmpty()) {
+      throw new BadRequestException("--dir is required");
+    }
+
+    Change change = rsrc.getChange();
+    // the same key as the preview which shows the directories
+    FollowCoalescer.Key key = new FollowCoalescer.Key(change.currentPatchSetId(), false, target, files);
+    try (Repository repo = gitManager.openRepository(change.getProject())) {
+      ChangedBlobs blobs = changedBlobs.getIfPresent(key);
+      if (blobs == null) {
+        blobs = load(change, rsrc.getChangeData().currentPatchSet(), repo);
+        changedBlobs.put(key, blobs);
+      }
+
+      Map<String, ObjectId> oldBlobs = new TreeMap<>();
+      Map<String, ObjectId> newBlobs = new TreeMap<>();
+      for (Map.Entry<String, ObjectId> e : blobs.oldBlobs.entrySet()) {
+        String path = e.getKey();
+        if (dirs.contains(dir(path))) {
+          oldBlobs.put(path, e.getValue());
+          newBlobs.put(path, blobs.newBlobs.get(path));
+        }
+      }
+      return Response.ok(new TreeMap<>(lineStats.compute(repo, oldBlobs, newBlobs)));
+    }
+  }
+
+  /**
+   * Rewrite the tree like the preview, and collect the blobs which change.
+   */
+  private ChangedBlobs load(Change change, PatchSet patchSet, Repository repo)
+      throws IOException, RestApiException {
+    try (UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil)) {
+      update.setTargetResolver(
+          targetResolver.forRepository(change.getProject(), repo, update.getRevWalk()));
+      update.useChange(change);
+      if (target != null) {
+        update.newReviewTarget(target);
+      }
+      if (files != null) {
+        update.newReviewFiles(files);
+      }
+      if (!update.isValidReviewTarget()) {
+        throw new UnprocessableEntityException(
+            "Review-Target " + update.getReviewTarget() + " does not exist");
+      }
+
+      update.rebaseWhenNecessary(patchSet);
+      update.rewritePaths();
+      ChangedBlobs blobs = new ChangedBlobs();
+      update.getChangedBlobs(blobs.oldBlobs, blobs.newBlobs);
+      return blobs;
+    }
+  }
+
+  private static String dir(String path) {
+    int slash = path.lastIndexOf('/');
+    return slash < 0 ? ROOT : path.substring(0, slash);
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Which of several (Review-Target, Review-Files) groups selects a tree entry.
+ *
+ * The last group which selects a path wins, and a selected directory is
+ * taken as a whole unless a later group may select something inside it.
+ * Then the directory has to be entered: its entries keep the group of the
+ * directory and are only tested against the later groups.
+ */
+final class GroupSelection {
+  /** the entry is taken from the parent, no group selects it */
+  static final int PARENT = -1;
+
+  private final List<ReviewFilter> filters;
+
+  GroupSelection(List<ReviewFilter> filters) {
+    this.filters = requireNonNull(filters);
+  }
+
+  /**
+   * @param inherited the group selecting the directory of the entry, or {@link #PARENT}
+   * @return the group selecting the entry, or {@link #PARENT}; for a
+   *     directory which has to be entered the {@link #undecided} value of its group
+   */
+  int select(String path, boolean isSubtree, int inherited) {
+    boolean mayOverride = false;
+    for (int g = filters.size() - 1; g > inherited; g--) {
+      ReviewFilter filter = filters.get(g);
+      ReviewFilter.Selected selected = filter.matchAll()
+          ? ReviewFilter.Selected.POSITIVE
+          : filter.isPathToBeReviewed(path, isSubtree);
+      if (selected == ReviewFilter.Selected.POSITIVE) {
+        return mayOverride ? undecided(g) : g;
+      }
+      if (isSubtree && selected == ReviewFilter.Selected.NO_MATCH && filter.mayMatchBelow(path)) {
+        // this group may still select something inside, which would take precedence
+        mayOverride = true;
+      }
+    }
+    return mayOverride ? undecided(inherited) : inherited;
+  }
+
+  /** the selection of a directory which has to be entered, and whose entries default to `group` */
+  static int undecided(int group) {
+    return -3 - group;
+  }
+
+  static boolean isUndecided(int selection) {
+    return selection < PARENT;
+  }
+
+  /** the group of a selection, also for a directory which has to be entered */
+  static int group(int selection) {
+    return isUndecided(selection) ? -3 - selection : selection;
+  }
+}
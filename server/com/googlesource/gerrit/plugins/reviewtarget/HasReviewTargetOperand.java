@@ -18,18 +18,31 @@ import com.google.gerrit.extensions.annotations.Exports;
 import com.google.gerrit.index.query.PostFilterPredicate;
 import com.google.gerrit.index.query.Predicate;
 import com.google.gerrit.index.query.QueryParseException;
+import com.google.gerrit.server.RequestCleanup;
 import com.google.gerrit.server.query.change.ChangeData;
 import com.google.gerrit.server.query.change.ChangeQueryBuilder;
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
+import com.google.inject.OutOfScopeException;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
 import com.google.inject.Singleton;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * The query operator `has:selected`.
+ *
+ * Gerrit matches the operator one change at a time and never hands it the
+ * page of candidates, so the changes of a query are checked one after the
+ * other. Checking a page in parallel is left to the follow attribute, see
+ * {@link FollowAttributeFactory}.
+ */
 @Singleton
 public class HasReviewTargetOperand implements ChangeQueryBuilder.ChangeHasOperandFactory {
 
   private final MatchReviewTarget matchReviewTarget;
+  private final Provider<RequestCleanup> requestCleanup;
   final static String OPERAND = "selected";
 
   public static class Module extends AbstractModule {
@@ -42,25 +55,43 @@ public class HasReviewTargetOperand implements ChangeQueryBuilder.ChangeHasOpera
   }
 
   @Inject
-  HasReviewTargetOperand(MatchReviewTarget matchReviewTarget) {
+  HasReviewTargetOperand(
+      MatchReviewTarget matchReviewTarget, Provider<RequestCleanup> requestCleanup) {
     this.matchReviewTarget = requireNonNull(matchReviewTarget);
+    this.requestCleanup = requireNonNull(requestCleanup);
   }
 
   @Override
   public Predicate<ChangeData> create(ChangeQueryBuilder builder)
       throws QueryParseException {
-    return new HasReviewTargetPredicate();
+    MatchReviewTarget.QueryChecks checks = matchReviewTarget.newQueryChecks();
+    try {
+      // predicates have no end of their own, the query ends with its request
+      requestCleanup.get().add(checks::close);
+    } catch (OutOfScopeException | ProvisionException | IllegalStateException e) {
+      // not within a request, closed checks handle every change on its own
+      checks.close();
+    }
+    return new HasReviewTargetPredicate(checks);
   }
 
-  private class HasReviewTargetPredicate extends PostFilterPredicate<ChangeData> {
+  private static class HasReviewTargetPredicate extends PostFilterPredicate<ChangeData> {
+    private final MatchReviewTarget.QueryChecks checks;
 
-    HasReviewTargetPredicate() {
+    HasReviewTargetPredicate(MatchReviewTarget.QueryChecks checks) {
       super("has", OPERAND);
+      this.checks = checks;
     }
 
+    /**
+     * Post-filters are matched one change at a time, without the rest of
+     * the result set. The predicate lives as long as its query, so the
+     * checks of its changes share repositories, readers and resolved
+     * Review-Targets.
+     */
     @Override
     public boolean match(ChangeData object) {
-      return matchReviewTarget.checkReviewTarget(object.change());
+      return checks.checkReviewTarget(object.change());
     }
 
     @Override
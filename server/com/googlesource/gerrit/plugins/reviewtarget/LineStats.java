@@ -0,0 +1,199 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Inserted and deleted lines of files, computed on request for a preview.
+ *
+ * The files are compared in parallel, up to `statsMaxBytes` per request.
+ * Results are kept per pair of blobs, which never change.
+ */
+@Singleton
+class LineStats {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int CACHE_SIZE = 10_000;
+  static final String CACHE_NAME = "review_line_stats";
+
+  static class Module extends CacheModule {
+    @Override
+    protected void configure() {
+      cache(CACHE_NAME, Key.class, FileStats.class).maximumWeight(CACHE_SIZE);
+    }
+  }
+
+  static class FileStats {
+    Integer linesInserted;
+    Integer linesDeleted;
+    /** at least one side is a binary file */
+    Boolean binary;
+    /** not compared, because the byte budget was used up */
+    Boolean skipped;
+  }
+
+  private static final class Key {
+    private final ObjectId oldBlob;
+    private final ObjectId newBlob;
+
+    Key(ObjectId oldBlob, ObjectId newBlob) {
+      this.oldBlob = oldBlob.copy();
+      this.newBlob = newBlob.copy();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return oldBlob.equals(other.oldBlob) && newBlob.equals(other.newBlob);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(oldBlob, newBlob);
+    }
+  }
+
+  private final Configuration cfg;
+  private final ParallelEvaluator evaluator;
+  private final Cache<Key, FileStats> cache;
+
+  @Inject
+  LineStats(
+      Configuration cfg,
+      ParallelEvaluator evaluator,
+      @Named(CACHE_NAME) Cache<Key, FileStats> cache) {
+    this.cfg = requireNonNull(cfg);
+    this.evaluator = requireNonNull(evaluator);
+    this.cache = requireNonNull(cache);
+  }
+
+  @VisibleForTesting
+  LineStats(Configuration cfg, ParallelEvaluator evaluator) {
+    this(cfg, evaluator, CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build());
+  }
+
+  /**
+   * Compare the old and new blob of each path.
+   *
+   * Sizes are checked against the budget first, in the order of the paths,
+   * then the remaining files are compared in parallel.
+   */
+  Map<String, FileStats> compute(
+      Repository repo, Map<String, ObjectId> oldBlobs, Map<String, ObjectId> newBlobs)
+      throws IOException {
+    Map<String, FileStats> stats = new ConcurrentHashMap<>();
+    List<String> todo = new ArrayList<>();
+    long budget = cfg.getStatsMaxBytes();
+
+    try (ObjectReader reader = repo.newObjectReader()) {
+      for (Map.Entry<String, ObjectId> e : oldBlobs.entrySet()) {
+        String path = e.getKey();
+        Key key = new Key(e.getValue(), newBlobs.get(path));
+        FileStats cached = cache.getIfPresent(key);
+        if (cached != null) {
+          stats.put(path, cached);
+          continue;
+        }
+        long size = getSize(reader, key.oldBlob) + getSize(reader, key.newBlob);
+        if (size > budget) {
+          FileStats skipped = new FileStats();
+          skipped.skipped = true;
+          stats.put(path, skipped);
+          continue;
+        }
+        budget -= size;
+        todo.add(path);
+      }
+    }
+
+    evaluator.evaluate(todo, path -> {
+      Key key = new Key(oldBlobs.get(path), newBlobs.get(path));
+      try (ObjectReader reader = repo.newObjectReader()) {
+        FileStats result = diff(reader, key);
+        cache.put(key, result);
+        stats.put(path, result);
+        return true;
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("cannot compare %s in %s", path, repo);
+        return false;
+      }
+    });
+    return new TreeMap<>(stats);
+  }
+
+  private static long getSize(ObjectReader reader, ObjectId blob) throws IOException {
+    return blob.equals(ObjectId.zeroId()) ? 0 : reader.getObjectSize(blob, Constants.OBJ_BLOB);
+  }
+
+  private static FileStats diff(ObjectReader reader, Key key) throws IOException {
+    byte[] oldContent = load(reader, key.oldBlob);
+    byte[] newContent = load(reader, key.newBlob);
+    FileStats stats = new FileStats();
+    if (RawText.isBinary(oldContent) || RawText.isBinary(newContent)) {
+      stats.binary = true;
+      return stats;
+    }
+
+    EditList edits = new HistogramDiff().diff(
+        RawTextComparator.DEFAULT, new RawText(oldContent), new RawText(newContent));
+    int inserted = 0;
+    int deleted = 0;
+    for (Edit edit : edits) {
+      inserted += edit.getLengthB();
+      deleted += edit.getLengthA();
+    }
+    stats.linesInserted = inserted;
+    stats.linesDeleted = deleted;
+    return stats;
+  }
+
+  private static byte[] load(ObjectReader reader, ObjectId blob) throws IOException {
+    if (blob.equals(ObjectId.zeroId())) {
+      return new byte[0];
+    }
+    return reader.open(blob, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+  }
+}
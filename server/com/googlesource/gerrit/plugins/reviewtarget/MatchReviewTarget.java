@@ -3,54 +3,296 @@ package com.googlesource.gerrit.plugins.reviewtarget;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
 import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.server.change.RebaseUtil;
 import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 @Singleton
 public class MatchReviewTarget {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** The outcome of checking a single change. */
+  enum Result {
+    SELECTED,
+    /** the current tree differs from Review-Target plus Review-Files */
+    NOT_SELECTED,
+    /** a Review-Target does not exist */
+    INVALID_TARGET,
+    /** no evaluation slot within the time budget */
+    REJECTED,
+    /** the evaluation exceeded the time budget */
+    TIMEOUT,
+    ERROR
+  }
   private final GitRepositoryManager gitManager;
   private final UpdateUtil updateUtil;
   private final RebaseUtil rebaseUtil;
   private final Configuration cfg;
+  private final VerificationNotes notes;
+  private final ReviewTargetResolver targetResolver;
+  private final Semaphore permits;
+  private final Counter0 rejected;
+  private final Counter0 timedOut;
+  private final Counter0 stamped;
 
   @Inject
   MatchReviewTarget(
       GitRepositoryManager gitManager,
       UpdateUtil updateUtil,
       RebaseUtil rebaseUtil,
-      Configuration cfg
+      Configuration cfg,
+      VerificationNotes notes,
+      ReviewTargetResolver targetResolver,
+      MetricMaker metricMaker
   ) {
     this.gitManager = requireNonNull(gitManager);
     this.updateUtil = requireNonNull(updateUtil);
     this.rebaseUtil = requireNonNull(rebaseUtil);
     this.cfg = requireNonNull(cfg);
+    this.notes = requireNonNull(notes);
+    this.targetResolver = requireNonNull(targetResolver);
+    this.permits = new Semaphore(cfg.getSelectedMaxConcurrency(), true);
+    this.rejected = metricMaker.newCounter(
+        "selected/rejected",
+        new Description("has:selected evaluations which did not get a slot within the time budget")
+            .setRate()
+            .setUnit("evaluations"));
+    this.timedOut = metricMaker.newCounter(
+        "selected/timeout",
+        new Description("has:selected evaluations aborted after exceeding the time budget")
+            .setRate()
+            .setUnit("evaluations"));
+    this.stamped = metricMaker.newCounter(
+        "selected/stamped",
+        new Description("has:selected evaluations answered by a stored verification")
+            .setRate()
+            .setUnit("evaluations"));
+  }
+
+  /**
+   * Start checking the changes of one query, which are matched one at a time,
+   * whether their current patch sets match their Review-Target and
+   * Review-Files footers.
+   *
+   * At most `selectedMaxConcurrency` checks run at the same time, and checks
+   * which cannot finish in time are reported as not selected.
+   * The caller has to close the returned checks when the query is done.
+   */
+  QueryChecks newQueryChecks() {
+    return new QueryChecks();
+  }
+
+  /**
+   * The checks of one query.
+   *
+   * Each repository is opened only once, and all its changes share one
+   * reader and RevWalk, so the trees of a common Review-Target are parsed
+   * only once and its name is resolved only once. Once closed, every change
+   * opens its repository on its own.
+   *
+   * All checks share one `selectedTimeout` budget, which starts with the
+   * first check. When it is used up, the remaining changes are rejected
+   * at once, so a broad query cannot hold its thread for every change.
+   */
+  class QueryChecks implements AutoCloseable {
+    private final Map<Project.NameKey, ProjectChecks> projects = new HashMap<>();
+    private Deadline deadline;
+    private boolean closed;
+
+    synchronized boolean checkReviewTarget(Change change) {
+      if (deadline == null) {
+        deadline = new Deadline(cfg.getSelectedTimeoutMs());
+      }
+      if (closed) {
+        try (Repository repo = gitManager.openRepository(change.getProject());
+            UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil)) {
+          update.setTargetResolver(
+              targetResolver.forRepository(change.getProject(), repo, update.getRevWalk()));
+          return verify(change, update, true, deadline) == Result.SELECTED;
+        } catch (IOException e) {
+          warnWithOccasionalStackTrace(
+              e, "failure opening repository of change %s: %s", change.getId(), e.getMessage());
+          return false;
+        }
+      }
+      ProjectChecks checks = projects.get(change.getProject());
+      if (checks == null) {
+        try {
+          checks = new ProjectChecks(change.getProject());
+        } catch (IOException e) {
+          warnWithOccasionalStackTrace(
+              e, "failure opening repository of change %s: %s", change.getId(), e.getMessage());
+          return false;
+        }
+        projects.put(change.getProject(), checks);
+      }
+
+      try (UpdateTree update =
+          new UpdateTree(checks.repo, checks.rw, checks.inserter, updateUtil, rebaseUtil)) {
+        update.setTargetResolver(checks);
+        return verify(change, update, true, deadline) == Result.SELECTED;
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      closed = true;
+      for (ProjectChecks checks : projects.values()) {
+        checks.close();
+      }
+      projects.clear();
+    }
   }
 
-  boolean checkReviewTarget(Change change) {
+  /**
+   * The handles shared by the checks of one project, and the Review-Targets resolved for them.
+   */
+  private class ProjectChecks implements UpdateTree.TargetResolver {
+    private final Repository repo;
+    private final ObjectInserter inserter;
+    private final RevWalk rw;
+    private final UpdateTree.TargetResolver resolver;
+    private final Map<String, Optional<RevCommit>> targets = new HashMap<>();
+
+    ProjectChecks(Project.NameKey project) throws IOException {
+      repo = gitManager.openRepository(project);
+      inserter = repo.newObjectInserter();
+      rw = new RevWalk(inserter.newReader());
+      resolver = targetResolver.forRepository(project, repo, rw);
+    }
+
+    @Override
+    public RevCommit resolve(String name) throws IOException {
+      Optional<RevCommit> target = targets.get(name);
+      if (target == null) {
+        target = Optional.ofNullable(resolver.resolve(name));
+        targets.put(name, target);
+      }
+      return target.orElse(null);
+    }
+
+    @Override
+    public String findVersionRef(Repository r, ObjectId commit, String prefix) throws IOException {
+      return resolver.findVersionRef(r, commit, prefix);
+    }
 
-    try (
-        Repository repo = gitManager.openRepository(change.getProject());
-        UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil);
-    ) {
-      update.useChange(change);
+    void close() {
+      // a RevWalk does not close a reader it was given
+      rw.close();
+      rw.getObjectReader().close();
+      inserter.close();
+      repo.close();
+    }
+  }
+
+  /**
+   * Check `change` in a repository opened by the caller, e.g. one which is
+   * shared by several threads, and tell why it is not selected.
+   * The limits apply as usual, with a budget of `selectedTimeout` for this change.
+   */
+  Result verify(Change change, Repository repo) {
+    try (UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil)) {
+      update.setTargetResolver(
+          targetResolver.forRepository(change.getProject(), repo, update.getRevWalk()));
+      return verify(change, update, true);
+    }
+  }
+
+  /**
+   * Check `change`, which `update` of the caller already uses, e.g. after
+   * describing it. The limits apply as usual.
+   */
+  boolean checkReviewTarget(Change change, UpdateTree update) {
+    return verify(change, update, false) == Result.SELECTED;
+  }
+
+  private Result verify(Change change, UpdateTree update, boolean useChange) {
+    return verify(change, update, useChange, new Deadline(cfg.getSelectedTimeoutMs()));
+  }
+
+  private Result verify(Change change, UpdateTree update, boolean useChange, Deadline deadline) {
+    if (!acquire(change, deadline)) {
+      return Result.REJECTED;
+    }
+    try {
+      return evaluate(change, update, useChange, deadline);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Wait for a free evaluation slot within the rest of the time budget.
+   * The caller has to release the permit if this returns true.
+   */
+  private boolean acquire(Change change, Deadline deadline) {
+    try {
+      long remainingMs = deadline.remainingMs();
+      if (remainingMs > 0 && permits.tryAcquire(remainingMs, MILLISECONDS)) {
+        return true;
+      }
+      rejected.increment();
+      logger.atWarning().atMostEvery(1, MINUTES).log(
+          "no has:selected evaluation slot within the time budget, change %s reported as not selected",
+          change.getId());
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private Result evaluate(Change change, UpdateTree update, boolean useChange, Deadline deadline) {
+    try {
+      update.setProgressMonitor(deadline);
+      if (useChange) {
+        update.useChange(change);
+      }
 
       if (!update.isValidReviewTarget()) {
-        return false;
+        return Result.INVALID_TARGET;
       }
 
-      update.rewritePaths();
-      return update.hasCurrentPaths();
+      // stamps are only written by the commit validator and by updates through the plugin
+      if (notes.isEnabled() && notes.isVerified(update, VerificationNotes.Stamp.of(update))) {
+        stamped.increment();
+        return Result.SELECTED;
+      }
+
+      // comparing stops at the first difference and writes no trees
+      return update.findMismatchedPaths(1).isEmpty() ? Result.SELECTED : Result.NOT_SELECTED;
+
+    } catch (InterruptedIOException e) {
+      timedOut.increment();
+      logger.atWarning().atMostEvery(1, MINUTES).log(
+          "has:selected evaluation of change %s exceeded the budget of %d ms, reported as not selected",
+          change.getId(), cfg.getSelectedTimeoutMs());
+      return Result.TIMEOUT;
 
     } catch (RestApiException | StorageException | UncheckedExecutionException | IOException e) {
       warnWithOccasionalStackTrace(
@@ -58,7 +300,36 @@ public class MatchReviewTarget {
           "failure checking Review-Target footer for change %s: %s",
           change.getId(),
           e.getMessage());
-      return false;
+      return Result.ERROR;
+    }
+  }
+
+  /**
+   * Cancels tree walks once the time budget is used up.
+   */
+  private static class Deadline extends EmptyProgressMonitor {
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final long deadline;
+    private int entries;
+
+    Deadline(long budgetMs) {
+      this.deadline = System.nanoTime() + MILLISECONDS.toNanos(budgetMs);
+    }
+
+    long remainingMs() {
+      return NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    @Override
+    public void update(int completed) {
+      entries += completed;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      // reading the clock for every tree entry would be noticeable in large walks
+      return entries % CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0;
     }
   }
 
@@ -0,0 +1,130 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Runs independent checks of a page of items in parallel.
+ *
+ * On a JVM with virtual threads every check gets its own virtual thread,
+ * otherwise a pool of `selectedMaxConcurrency` threads is used.
+ * The checks are expected to do their own admission control.
+ */
+@Singleton
+class ParallelEvaluator implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  interface Check<T> {
+    boolean test(T item);
+  }
+
+  private final WorkQueue workQueue;
+  private final Configuration cfg;
+  private ExecutorService executor;
+
+  @Inject
+  ParallelEvaluator(WorkQueue workQueue, Configuration cfg) {
+    this.workQueue = requireNonNull(workQueue);
+    this.cfg = requireNonNull(cfg);
+  }
+
+  @VisibleForTesting
+  ParallelEvaluator(ExecutorService executor) {
+    this.workQueue = null;
+    this.cfg = null;
+    this.executor = requireNonNull(executor);
+  }
+
+  @Override
+  public void start() {
+    executor = newVirtualThreadExecutor();
+    if (executor == null) {
+      executor = workQueue.createQueue(cfg.getSelectedMaxConcurrency(), "ReviewTarget-Selected");
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Check all items, and return the results in the order of the items.
+   * Checks which fail or are interrupted count as false.
+   */
+  <T> List<Boolean> evaluate(List<T> items, Check<T> check) {
+    if (items.size() <= 1) {
+      List<Boolean> results = new ArrayList<>(items.size());
+      for (T item : items) {
+        results.add(check.test(item));
+      }
+      return results;
+    }
+
+    List<Future<Boolean>> futures = new ArrayList<>(items.size());
+    for (T item : items) {
+      futures.add(executor.submit(() -> check.test(item)));
+    }
+
+    List<Boolean> results = new ArrayList<>(items.size());
+    for (Future<Boolean> future : futures) {
+      results.add(await(future));
+    }
+    return results;
+  }
+
+  private static boolean await(Future<Boolean> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      return false;
+    } catch (ExecutionException e) {
+      logger.atWarning().withCause(e.getCause()).log("parallel check failed");
+      return false;
+    }
+  }
+
+  /**
+   * Virtual threads exist from Java 21 on, look them up without requiring it at compile time.
+   */
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      logger.atInfo().log("virtual threads are not available, using a thread pool");
+      return null;
+    }
+  }
+}
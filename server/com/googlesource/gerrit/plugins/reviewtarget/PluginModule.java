@@ -14,9 +14,17 @@
 
 package com.googlesource.gerrit.plugins.reviewtarget;
 
+import com.google.gerrit.extensions.events.GitReferenceUpdatedListener;
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.extensions.restapi.RestApiModule;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.gerrit.server.change.ChangePluginDefinedInfoFactory;
+import com.google.gerrit.server.git.validators.CommitValidationListener;
+import com.google.gerrit.server.git.validators.RefOperationValidationListener;
 
 import static com.google.gerrit.server.change.ChangeResource.CHANGE_KIND;
+import static com.googlesource.gerrit.plugins.reviewtarget.FollowJobResource.FOLLOW_JOB_KIND;
 
 import com.google.inject.AbstractModule;
 
@@ -30,9 +38,36 @@ public class PluginModule extends AbstractModule {
           protected void configure() {
             post(CHANGE_KIND, "follow").to(PostFollow.class);
             get(CHANGE_KIND, "follow").to(GetFollow.class);
+            get(CHANGE_KIND, "follow_log").to(GetFollowLog.class);
+            get(CHANGE_KIND, "follow_split").to(GetFollowSplit.class);
+            get(CHANGE_KIND, "follow_stats").to(GetFollowStats.class);
+
+            DynamicMap.mapOf(binder(), FOLLOW_JOB_KIND);
+            child(CHANGE_KIND, "follow_jobs").to(FollowJobsCollection.class);
+            get(FOLLOW_JOB_KIND).to(GetFollowJob.class);
           }
         }
     );
     install(new HasReviewTargetOperand.Module());
+    install(new UpdateUtil.Module());
+    install(new ReviewTargetResolver.Module());
+    install(new TargetReachability.Module());
+    install(new LineStats.Module());
+    install(new GetFollowStats.Module());
+    DynamicSet.bind(binder(), ChangePluginDefinedInfoFactory.class).to(FollowAttributeFactory.class);
+    DynamicSet.bind(binder(), GitReferenceUpdatedListener.class).to(ProjectConfigCache.class);
+    DynamicSet.bind(binder(), GitReferenceUpdatedListener.class).to(ReviewTargetResolver.class);
+    DynamicSet.bind(binder(), CommitValidationListener.class).to(ReviewTargetCommitValidator.class);
+    DynamicSet.bind(binder(), RefOperationValidationListener.class).to(VerificationNotesRefValidator.class);
+    install(
+        new LifecycleModule() {
+          @Override
+          protected void configure() {
+            listener().to(FollowJobs.class);
+            listener().to(ParallelEvaluator.class);
+            listener().to(CacheWarmer.class);
+          }
+        }
+    );
   }
 }
@@ -14,8 +14,13 @@
 
 package com.googlesource.gerrit.plugins.reviewtarget;
 
+import com.google.common.base.Strings;
 import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.extensions.restapi.BadRequestException;
+import com.google.gerrit.extensions.restapi.ResourceConflictException;
 import com.google.gerrit.extensions.restapi.Response;
 import com.google.gerrit.extensions.restapi.RestApiException;
 import com.google.gerrit.extensions.restapi.RestModifyView;
@@ -23,6 +28,7 @@ import com.google.gerrit.server.change.RebaseUtil;
 import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.change.ChangeResource;
+import com.google.gerrit.server.notedb.ChangeNotes;
 import com.google.gerrit.server.update.UpdateException;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -31,19 +37,30 @@ import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
 
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.errors.ConfigInvalidException;
 
 import com.googlesource.gerrit.plugins.reviewtarget.PostFollow.Input;
 
 import static java.util.Objects.requireNonNull;
+import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
 
 @Singleton
 class PostFollow implements RestModifyView<ChangeResource, Input> {
+  static class ReviewGroupInput {
+    String reviewTarget;
+    String reviewFiles;
+  }
+
   static class Input {
     boolean doUpdate;
     String newReviewTarget;
     String newReviewFiles;
+    List<ReviewGroupInput> newReviewGroups;
+    Integer expectedPatchset;
+    boolean async;
   }
 
   static class FollowInfo {
@@ -51,6 +68,7 @@ class PostFollow implements RestModifyView<ChangeResource, Input> {
     boolean validReviewTarget;
     int newPatchsetId;
     String version;
+    Boolean targetReachable;
     List<String> addedPaths;
     List<String> updatedPaths;
     List<String> removedPaths;
@@ -60,33 +78,95 @@ class PostFollow implements RestModifyView<ChangeResource, Input> {
 
   private final GitRepositoryManager gitManager;
   private final Configuration cfg;
+  private final ProjectConfigCache projectConfig;
   private final FollowPreconditions preconditions;
   private final UpdateUtil updateUtil;
   private final RebaseUtil rebaseUtil;
+  private final FollowCoalescer coalescer;
+  private final FollowJobs jobs;
+  private final TargetReachability reachability;
+  private final ReviewTargetResolver targetResolver;
+  private final VerificationNotes verificationNotes;
 
   @Inject
   PostFollow(
       GitRepositoryManager gitManager,
       Configuration cfg,
+      ProjectConfigCache projectConfig,
       FollowPreconditions preconditions,
       UpdateUtil updateUtil,
-      RebaseUtil rebaseUtil) {
+      RebaseUtil rebaseUtil,
+      FollowCoalescer coalescer,
+      FollowJobs jobs,
+      TargetReachability reachability,
+      ReviewTargetResolver targetResolver,
+      VerificationNotes verificationNotes) {
     this.gitManager = requireNonNull(gitManager);
     this.cfg = requireNonNull(cfg);
+    this.projectConfig = requireNonNull(projectConfig);
     this.preconditions = requireNonNull(preconditions);
     this.updateUtil = requireNonNull(updateUtil);
     this.rebaseUtil = requireNonNull(rebaseUtil);
+    this.coalescer = requireNonNull(coalescer);
+    this.jobs = requireNonNull(jobs);
+    this.reachability = requireNonNull(reachability);
+    this.targetResolver = requireNonNull(targetResolver);
+    this.verificationNotes = requireNonNull(verificationNotes);
   }
 
   @Override
-  public Response<FollowInfo> apply(ChangeResource rsrc, Input input) throws IOException, RestApiException, ConfigInvalidException, UpdateException {
+  public Response<?> apply(ChangeResource rsrc, Input input) throws IOException, RestApiException, ConfigInvalidException, UpdateException {
     preconditions.assertAddPatchSetPermission(rsrc);
     preconditions.assertCanChangeReviewTarget(rsrc);
 
     Change change = rsrc.getChange();
     logger.atFine().log("FollowMe POST id=%s doUpdate=%s newReviewTarget=%s", change.getId(), input.doUpdate, input.newReviewTarget);
 
+    if (input.expectedPatchset != null && input.expectedPatchset != change.currentPatchSetId().get()) {
+      throw new ResourceConflictException(String.format(
+          "expected patch set %d, but current patch set is %d",
+          input.expectedPatchset, change.currentPatchSetId().get()));
+    }
+
+    String newReviewTarget = input.newReviewTarget;
+    String newReviewFiles = input.newReviewFiles;
+    if (input.newReviewGroups != null) {
+      if (input.newReviewGroups.isEmpty() || newReviewTarget != null || newReviewFiles != null) {
+        throw new BadRequestException(
+            "new_review_groups needs at least one group and replaces new_review_target and new_review_files");
+      }
+      // identical group lists get identical keys
+      List<String> targets = new ArrayList<>();
+      List<String> files = new ArrayList<>();
+      for (ReviewGroupInput group : input.newReviewGroups) {
+        if (group.reviewTarget == null) {
+          throw new BadRequestException("review_target is required in new_review_groups");
+        }
+        targets.add(group.reviewTarget);
+        files.add(Strings.nullToEmpty(group.reviewFiles));
+      }
+      newReviewTarget = String.join("\n", targets);
+      newReviewFiles = String.join("\0", files);
+    }
+    FollowCoalescer.Key key = new FollowCoalescer.Key(
+        change.currentPatchSetId(), input.doUpdate, newReviewTarget, newReviewFiles);
     CurrentUser user = rsrc.getUser();
+    ChangeNotes notes = rsrc.getNotes();
+    PatchSet patchSet = rsrc.getChangeData().currentPatchSet();
+
+    if (input.async) {
+      FollowJobs.FollowJob job = jobs.submit(change.getId(), key, user,
+          monitor -> follow(change, notes, patchSet, user, input, monitor));
+      return Response.withStatusCode(SC_ACCEPTED, job.toInfo());
+    }
+
+    return Response.ok(coalescer.run(key,
+        () -> follow(change, notes, patchSet, user, input, NullProgressMonitor.INSTANCE)));
+  }
+
+  private FollowInfo follow(
+      Change change, ChangeNotes notes, PatchSet patchSet, CurrentUser user, Input input, ProgressMonitor monitor
+  ) throws IOException, RestApiException, ConfigInvalidException, UpdateException {
     FollowInfo resp = new FollowInfo();
     resp.onReviewBranch = true;
 
@@ -94,6 +174,9 @@ class PostFollow implements RestModifyView<ChangeResource, Input> {
         Repository repo = gitManager.openRepository(change.getProject());
         UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil);
     ) {
+      update.setTargetResolver(
+          targetResolver.forRepository(change.getProject(), repo, update.getRevWalk()));
+      update.setProgressMonitor(monitor);
       update.useChange(change);
 
       if (input.newReviewTarget != null) {
@@ -104,12 +187,31 @@ class PostFollow implements RestModifyView<ChangeResource, Input> {
         update.newReviewFiles(input.newReviewFiles);
       }
 
+      if (input.newReviewGroups != null) {
+        List<String> targets = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        for (ReviewGroupInput group : input.newReviewGroups) {
+          targets.add(group.reviewTarget);
+          files.add(Strings.nullToEmpty(group.reviewFiles));
+        }
+        update.newReviewGroups(targets, files);
+      }
+
       resp.validReviewTarget = update.isValidReviewTarget();
       if (!resp.validReviewTarget) {
-        return Response.ok(resp);
+        return resp;
       }
 
-      update.rebaseWhenNecessary(rsrc.getChangeData().currentPatchSet());
+      if (cfg.getRequireReachableTarget()) {
+        String unreachable = findUnreachableTarget(change, update);
+        resp.targetReachable = unreachable == null;
+        if (unreachable != null && input.doUpdate) {
+          throw new ResourceConflictException(String.format(
+              "Review-Target %s is not reachable from the follow branch", unreachable));
+        }
+      }
+
+      update.rebaseWhenNecessary(patchSet);
       update.rewritePaths();
 
       resp.addedPaths = new ArrayList<>();
@@ -120,10 +222,24 @@ class PostFollow implements RestModifyView<ChangeResource, Input> {
       resp.version = update.getTargetVersion(cfg.getVersionPrefix(), cfg.getVersionDropPrefix());
 
       if (input.doUpdate) {
-        resp.newPatchsetId = update.createPatchSet(user, cfg.getReviewTargetFooter(), cfg.getReviewFilesFooter(), rsrc.getNotes());
+        resp.newPatchsetId = update.createPatchSet(user, cfg.getReviewTargetFooter(), cfg.getReviewFilesFooter(), notes);
+        if (update.getUpdatedCommit() != null && verificationNotes.isEnabled()) {
+          // the new tree is exactly the selection, as rewritten above
+          verificationNotes.record(
+              change.getProject(), repo, update.getUpdatedCommit(), VerificationNotes.Stamp.of(update));
+        }
       }
     }
-    return Response.ok(resp);
+    return resp;
   }
 
+  @Nullable
+  private String findUnreachableTarget(Change change, UpdateTree update) throws IOException {
+    BranchPair pair = projectConfig.forReviewBranch(change.getDest());
+    if (pair == null) {
+      return update.getReviewTarget();
+    }
+    update.useFollowBranch(pair.getFollowBranch());
+    return reachability.findUnreachableTarget(update);
+  }
 }
@@ -0,0 +1,116 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.BranchNameKey;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.annotations.PluginName;
+import com.google.gerrit.extensions.events.GitReferenceUpdatedListener;
+import com.google.gerrit.server.config.PluginConfigFactory;
+import com.google.gerrit.server.project.NoSuchProjectException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The branch pairs of each project, parsed once.
+ *
+ * Projects can configure several `follow = <followBranch>:<reviewBranch>`
+ * pairs, which are inherited from parent projects. Without them the global
+ * `followBranch` and `reviewBranch` are used. All entries are dropped when
+ * any `project.config` changes, as the change can be inherited.
+ */
+@Singleton
+class ProjectConfigCache implements GitReferenceUpdatedListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  static final String KEY_FOLLOW = "follow";
+
+  private final PluginConfigFactory pluginConfigFactory;
+  private final String pluginName;
+  private final ImmutableList<BranchPair> defaultPairs;
+  private final ConcurrentMap<Project.NameKey, ImmutableList<BranchPair>> pairs =
+      new ConcurrentHashMap<>();
+
+  @Inject
+  ProjectConfigCache(
+      PluginConfigFactory pluginConfigFactory,
+      @PluginName String pluginName,
+      Configuration cfg) {
+    this.pluginConfigFactory = requireNonNull(pluginConfigFactory);
+    this.pluginName = requireNonNull(pluginName);
+    this.defaultPairs =
+        ImmutableList.of(new BranchPair(cfg.getFollowBranch(), cfg.getReviewBranch()));
+  }
+
+  ImmutableList<BranchPair> getBranchPairs(Project.NameKey project) {
+    return pairs.computeIfAbsent(project, this::load);
+  }
+
+  /**
+   * The first pair whose review branch matches `branch`.
+   * @return null if the branch is not managed by this plugin
+   */
+  @Nullable
+  BranchPair forReviewBranch(BranchNameKey branch) {
+    for (BranchPair pair : getBranchPairs(branch.project())) {
+      if (pair.isReviewBranch(branch.branch())) {
+        return pair;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void onGitReferenceUpdated(Event event) {
+    if (RefNames.REFS_CONFIG.equals(event.getRefName())) {
+      pairs.clear();
+    }
+  }
+
+  private ImmutableList<BranchPair> load(Project.NameKey project) {
+    String[] values;
+    try {
+      values = pluginConfigFactory
+          .getFromProjectConfigWithInheritance(project, pluginName)
+          .getStringList(KEY_FOLLOW);
+    } catch (NoSuchProjectException e) {
+      return defaultPairs;
+    }
+
+    ImmutableList.Builder<BranchPair> result = ImmutableList.builder();
+    for (String value : values) {
+      BranchPair pair = BranchPair.parse(value);
+      if (pair == null) {
+        logger.atWarning().log(
+            "invalid plugin.%s.%s = %s in project %s, expected <followBranch>:<reviewBranch>",
+            pluginName, KEY_FOLLOW, value, project);
+        continue;
+      }
+      result.add(pair);
+    }
+    ImmutableList<BranchPair> parsed = result.build();
+    return parsed.isEmpty() ? defaultPairs : parsed;
+  }
+}
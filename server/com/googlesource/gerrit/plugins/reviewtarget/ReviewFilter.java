@@ -14,36 +14,66 @@
 
 package com.googlesource.gerrit.plugins.reviewtarget;
 
+import com.google.common.base.CharMatcher;
+import com.google.gerrit.common.Nullable;
 import org.eclipse.jgit.ignore.FastIgnoreRule;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public class ReviewFilter {
   enum Selected { NO_MATCH, POSITIVE, NEGATIVE }
 
+  private static final CharMatcher WILDCARDS = CharMatcher.anyOf("*?[\\");
+
+  private final List<String> lines;
   private final List<FastIgnoreRule> rules;
+  /** the directories leading to the literal paths, if there are only literal paths */
+  private final @Nullable Set<String> literalParents;
 
   ReviewFilter(List<String> lines) {
+    this.lines = lines;
     this.rules = getRules(lines);
+    this.literalParents = getLiteralPaths().map(ReviewFilter::getParents).orElse(null);
   }
 
   ReviewFilter(String lines) {
-    this.rules = getRules(List.of(lines.split("\n")));
+    this(List.of(lines.split("\n")));
   }
 
   private static List<FastIgnoreRule> getRules(List<String> lines) {
-    List<FastIgnoreRule> rules = new ArrayList<>();
+    List<FastIgnoreRule> rules = new ArrayList<>(lines.size());
     for (String line : lines) {
       line = line.strip();
       if (line.isEmpty()) continue;
-      // Add rules in the reverse order because later rules have higher priority.
-      // This way we can stop at the first matching rule later.
-      rules.add(0, new FastIgnoreRule(line));
+      rules.add(new FastIgnoreRule(line));
     }
+    // Reverse the order because later rules have higher priority.
+    // This way we can stop at the first matching rule later.
+    Collections.reverse(rules);
     return rules;
   }
 
+  /**
+   * The lines without surrounding whitespace and empty lines, which all select the same files.
+   */
+  static String normalize(List<String> lines) {
+    StringBuilder normalized = new StringBuilder();
+    for (String line : lines) {
+      line = line.strip();
+      if (line.isEmpty()) continue;
+      if (normalized.length() > 0) {
+        normalized.append('\n');
+      }
+      normalized.append(line);
+    }
+    return normalized.toString();
+  }
+
   public boolean matchAll() {
     return rules.size() == 0;
   }
@@ -60,4 +90,55 @@ public class ReviewFilter {
     // no rule matches
     return Selected.NO_MATCH;
   }
+
+  /**
+   * Whether anything below a directory, which no rule matches, could be selected.
+   *
+   * Always true unless {@link #getLiteralPaths} are known, then only the
+   * directories leading to them can contain selected paths.
+   */
+  boolean mayMatchBelow(String directory) {
+    return literalParents == null || literalParents.contains(directory);
+  }
+
+  private static Set<String> getParents(Set<String> paths) {
+    Set<String> parents = new HashSet<>();
+    for (String path : paths) {
+      for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+        parents.add(path.substring(0, slash));
+      }
+    }
+    return parents;
+  }
+
+  /**
+   * All selected paths are these paths or below them.
+   *
+   * Only known if every positive rule is a literal path relative to the root,
+   * like `/src` or `src/main/`. Negative rules only remove paths.
+   * @return nothing if any path could be selected
+   */
+  Optional<Set<String>> getLiteralPaths() {
+    if (matchAll()) {
+      return Optional.empty();
+    }
+    Set<String> paths = new HashSet<>();
+    for (String line : lines) {
+      line = line.strip();
+      if (line.isEmpty() || line.startsWith("!") || line.startsWith("#")) {
+        continue;
+      }
+      String path = line.endsWith("/") ? line.substring(0, line.length() - 1) : line;
+      boolean anchored = path.indexOf('/') >= 0;
+      if (!anchored || WILDCARDS.matchesAnyOf(path)) {
+        return Optional.empty();
+      }
+      path = path.startsWith("/") ? path.substring(1) : path;
+      if (path.isEmpty()) {
+        return Optional.empty();
+      }
+      paths.add(path);
+    }
+    return Optional.of(paths);
+  }
 }
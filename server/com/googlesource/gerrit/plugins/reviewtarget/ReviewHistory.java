@@ -0,0 +1,148 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.common.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The files each commit of a review branch brought in, and the
+ * Review-Target they were selected from.
+ *
+ * Every commit is compared with its first parent, directories which are
+ * the same in both are not entered.
+ */
+class ReviewHistory {
+  static final class FileEntry {
+    private final String path;
+    private final ObjectId blob;
+    private final @Nullable String reviewTarget;
+
+    FileEntry(String path, ObjectId blob, @Nullable String reviewTarget) {
+      this.path = requireNonNull(path);
+      this.blob = requireNonNull(blob);
+      this.reviewTarget = reviewTarget;
+    }
+
+    String getPath() {
+      return path;
+    }
+
+    /** the new content, zero if the file was removed */
+    ObjectId getBlob() {
+      return blob;
+    }
+
+    /** the Review-Target whose Review-Files select the path, if any */
+    @Nullable
+    String getReviewTarget() {
+      return reviewTarget;
+    }
+  }
+
+  interface Consumer {
+    void accept(RevCommit commit, List<FileEntry> files) throws IOException;
+  }
+
+  private final RevWalk rw;
+  private final UpdateUtil updateUtil;
+
+  ReviewHistory(RevWalk rw, UpdateUtil updateUtil) {
+    this.rw = requireNonNull(rw);
+    this.updateUtil = requireNonNull(updateUtil);
+  }
+
+  /**
+   * Pass all commits with a Review-Target footer which are reachable from
+   * `tip` but not from `since` to the consumer, oldest first.
+   */
+  void walk(ObjectId tip, @Nullable ObjectId since, Consumer consumer) throws IOException {
+    rw.reset();
+    rw.sort(RevSort.TOPO);
+    rw.sort(RevSort.REVERSE, true);
+    rw.markStart(rw.parseCommit(tip));
+    if (since != null) {
+      rw.markUninteresting(rw.parseCommit(since));
+    }
+
+    TreeWalk tw = new TreeWalk(rw.getObjectReader());
+    tw.setFilter(TreeFilter.ANY_DIFF);
+    for (RevCommit commit : rw) {
+      List<UpdateUtil.ReviewGroup> groups = updateUtil.getFooters(commit).getGroups();
+      if (groups.isEmpty()) {
+        continue;
+      }
+      consumer.accept(commit, getFiles(tw, commit, groups));
+    }
+  }
+
+  private List<FileEntry> getFiles(TreeWalk tw, RevCommit commit, List<UpdateUtil.ReviewGroup> groups)
+      throws IOException {
+    List<ReviewFilter> filters = new ArrayList<>(groups.size());
+    for (UpdateUtil.ReviewGroup group : groups) {
+      filters.add(updateUtil.getReviewFilter(group.getReviewFiles()));
+    }
+    GroupSelection groupSelection = new GroupSelection(filters);
+
+    if (commit.getParentCount() == 0) {
+      tw.reset();
+      tw.addTree(new EmptyTreeIterator());
+      tw.addTree(commit.getTree());
+    } else {
+      RevCommit parent = commit.getParent(0);
+      rw.parseHeaders(parent);
+      tw.reset(parent.getTree(), commit.getTree());
+    }
+
+    List<FileEntry> files = new ArrayList<>();
+    // the selection of each directory being walked, by depth; entries of an
+    // undecided one are tested against the groups which may override it
+    List<Integer> selected = new ArrayList<>();
+    while (tw.next()) {
+      int depth = tw.getDepth();
+      selected.subList(depth, selected.size()).clear();
+      int inherited = depth > 0 ? selected.get(depth - 1) : GroupSelection.undecided(GroupSelection.PARENT);
+      int selection = GroupSelection.isUndecided(inherited)
+          ? groupSelection.select(tw.getPathString(), tw.isSubtree(), GroupSelection.group(inherited))
+          : inherited;
+      int group = GroupSelection.group(selection);
+
+      if (tw.isSubtree()) {
+        selected.add(selection);
+        tw.enterSubtree();
+        continue;
+      }
+      ObjectId blob = tw.getFileMode(1) == FileMode.MISSING ? ObjectId.zeroId() : tw.getObjectId(1);
+      files.add(new FileEntry(
+          tw.getPathString(), blob, group >= 0 ? groups.get(group).getReviewTarget() : null));
+    }
+    return files;
+  }
+}
@@ -0,0 +1,250 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Propose Review-Files which split the differences between two trees into
+ * parts of roughly equal size.
+ *
+ * The changed files are collected per directory in a single diff walk, which
+ * also sums up the size selected by each candidate filter. Sizes are read from
+ * the object headers, blob contents are not loaded.
+ */
+class ReviewSplitter {
+  enum Weight { FILES, BYTES }
+
+  static final class Part {
+    private final List<String> lines = new ArrayList<>();
+    private int files;
+    private long bytes;
+
+    String getReviewFiles() {
+      return String.join("\n", lines);
+    }
+
+    int getFiles() {
+      return files;
+    }
+
+    long getBytes() {
+      return bytes;
+    }
+  }
+
+  /**
+   * A changed file, or a directory with the sum of the changed files inside.
+   */
+  private static final class Node {
+    final String path;
+    final boolean isDirectory;
+    final TreeMap<String, Node> children = new TreeMap<>();
+    int files;
+    long bytes;
+
+    Node(String path, boolean isDirectory) {
+      this.path = path;
+      this.isDirectory = isDirectory;
+    }
+
+    String toLine() {
+      return isDirectory ? "/" + path + "/" : "/" + path;
+    }
+  }
+
+  private final ObjectReader reader;
+  private final List<ReviewFilter> candidates;
+  private final Part[] candidateSizes;
+  private final Node root = new Node("", true);
+
+  ReviewSplitter(ObjectReader reader, List<ReviewFilter> candidates) {
+    this.reader = requireNonNull(reader);
+    this.candidates = requireNonNull(candidates);
+    this.candidateSizes = new Part[candidates.size()];
+    for (int c = 0; c < candidateSizes.length; c++) {
+      candidateSizes[c] = new Part();
+    }
+  }
+
+  /**
+   * Collect the files which differ between both trees, directories which are
+   * the same in both are not entered.
+   */
+  void scan(RevTree from, RevTree to) throws IOException {
+    // for each candidate: the depth of the directory which decided the selection, or -1
+    int[] decidedAt = new int[candidates.size()];
+    boolean[] selected = new boolean[candidates.size()];
+    Arrays.fill(decidedAt, -1);
+    List<Node> dirs = new ArrayList<>();
+    dirs.add(root);
+
+    TreeWalk walk = new TreeWalk(reader);
+    walk.addTree(from);
+    walk.addTree(to);
+    walk.setFilter(TreeFilter.ANY_DIFF);
+
+    while (walk.next()) {
+      int depth = walk.getDepth();
+      boolean isSubtree = walk.isSubtree();
+      String path = walk.getPathString();
+      while (dirs.size() > depth + 1) {
+        dirs.remove(dirs.size() - 1);
+      }
+
+      boolean[] selects = new boolean[candidates.size()];
+      for (int c = 0; c < candidates.size(); c++) {
+        if (decidedAt[c] >= depth) {
+          decidedAt[c] = -1;
+        }
+        if (decidedAt[c] >= 0) {
+          selects[c] = selected[c];
+          continue;
+        }
+        ReviewFilter filter = candidates.get(c);
+        ReviewFilter.Selected match = filter.matchAll()
+            ? ReviewFilter.Selected.POSITIVE
+            : filter.isPathToBeReviewed(path, isSubtree);
+        if (isSubtree && match != ReviewFilter.Selected.NO_MATCH) {
+          // like UpdateTree, a matching directory is taken as a whole
+          decidedAt[c] = depth;
+          selected[c] = match == ReviewFilter.Selected.POSITIVE;
+        }
+        selects[c] = match == ReviewFilter.Selected.POSITIVE;
+      }
+
+      if (isSubtree) {
+        Node dir = new Node(path, true);
+        dirs.get(depth).children.put(walk.getNameString(), dir);
+        dirs.add(dir);
+        walk.enterSubtree();
+        continue;
+      }
+
+      Node file = new Node(path, false);
+      file.files = 1;
+      file.bytes = getSize(walk);
+      dirs.get(depth).children.put(walk.getNameString(), file);
+      for (Node dir : dirs) {
+        dir.files++;
+        dir.bytes += file.bytes;
+      }
+      for (int c = 0; c < candidates.size(); c++) {
+        if (selects[c]) {
+          candidateSizes[c].files++;
+          candidateSizes[c].bytes += file.bytes;
+        }
+      }
+    }
+  }
+
+  /**
+   * The size of the new file, or of the old one if it was removed.
+   */
+  private long getSize(TreeWalk walk) throws IOException {
+    int tree = walk.getFileMode(1) == FileMode.MISSING ? 0 : 1;
+    if ((walk.getRawMode(tree) & FileMode.TYPE_MASK) == FileMode.TYPE_GITLINK) {
+      return 0;
+    }
+    return reader.getObjectSize(walk.getObjectId(tree), Constants.OBJ_BLOB);
+  }
+
+  int getFiles() {
+    return root.files;
+  }
+
+  long getBytes() {
+    return root.bytes;
+  }
+
+  /**
+   * The sizes selected by each candidate, in the order of the candidates.
+   */
+  List<Part> getCandidateSizes() {
+    return List.of(candidateSizes);
+  }
+
+  /**
+   * Split the changed files into at most the given number of parts.
+   *
+   * Directories larger than an equal share are split into their entries,
+   * the resulting units are then distributed largest first to the smallest part.
+   */
+  List<Part> split(int count, Weight weight) {
+    if (count < 1) {
+      throw new IllegalArgumentException("need at least one part");
+    }
+    long share = (weigh(root, weight) + count - 1) / count;
+    List<Node> units = new ArrayList<>();
+    for (Node child : root.children.values()) {
+      addUnits(child, share, weight, units);
+    }
+    units.sort(Comparator.comparingLong((Node n) -> weigh(n, weight)).reversed()
+        .thenComparing(n -> n.path));
+
+    List<Part> parts = new ArrayList<>();
+    for (int i = 0; i < Math.min(count, units.size()); i++) {
+      parts.add(new Part());
+    }
+    for (Node unit : units) {
+      Part smallest = parts.get(0);
+      for (Part part : parts) {
+        if (weigh(part, weight) < weigh(smallest, weight)) {
+          smallest = part;
+        }
+      }
+      smallest.lines.add(unit.toLine());
+      smallest.files += unit.files;
+      smallest.bytes += unit.bytes;
+    }
+    for (Part part : parts) {
+      part.lines.sort(null);
+    }
+    return parts;
+  }
+
+  private static void addUnits(Node node, long share, Weight weight, List<Node> units) {
+    if (!node.isDirectory || weigh(node, weight) <= share) {
+      units.add(node);
+      return;
+    }
+    for (Node child : node.children.values()) {
+      addUnits(child, share, weight, units);
+    }
+  }
+
+  private static long weigh(Node node, Weight weight) {
+    return weight == Weight.FILES ? node.files : node.bytes;
+  }
+
+  private static long weigh(Part part, Weight weight) {
+    return weight == Weight.FILES ? part.files : part.bytes;
+  }
+}
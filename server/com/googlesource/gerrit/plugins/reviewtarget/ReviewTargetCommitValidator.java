@@ -0,0 +1,155 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.BranchNameKey;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.events.CommitReceivedEvent;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.validators.CommitValidationException;
+import com.google.gerrit.server.git.validators.CommitValidationListener;
+import com.google.gerrit.server.git.validators.CommitValidationMessage;
+import com.google.gerrit.server.git.validators.ValidationMessage;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Checks commits pushed to a review branch against their Review-Target and Review-Files footers.
+ *
+ * The check only reads objects, the rewritten tree is never written.
+ * Commits without a Review-Target footer are not checked.
+ */
+@Singleton
+class ReviewTargetCommitValidator implements CommitValidationListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  enum Mode { OFF, WARN, REJECT }
+
+  static final int MAX_REPORTED_PATHS = 20;
+
+  private final Configuration cfg;
+  private final ProjectConfigCache projectConfig;
+  private final GitRepositoryManager gitManager;
+  private final UpdateUtil updateUtil;
+  private final RebaseUtil rebaseUtil;
+  private final VerificationNotes notes;
+
+  @Inject
+  ReviewTargetCommitValidator(
+      Configuration cfg,
+      ProjectConfigCache projectConfig,
+      GitRepositoryManager gitManager,
+      UpdateUtil updateUtil,
+      RebaseUtil rebaseUtil,
+      VerificationNotes notes) {
+    this.cfg = requireNonNull(cfg);
+    this.projectConfig = requireNonNull(projectConfig);
+    this.gitManager = requireNonNull(gitManager);
+    this.updateUtil = requireNonNull(updateUtil);
+    this.rebaseUtil = requireNonNull(rebaseUtil);
+    this.notes = requireNonNull(notes);
+  }
+
+  @Override
+  public List<CommitValidationMessage> onCommitReceived(CommitReceivedEvent event)
+      throws CommitValidationException {
+    Mode mode = cfg.getValidateOnPush();
+    if (mode == Mode.OFF
+        || event.commit.getParentCount() != 1
+        || event.commit.getFooterLines(cfg.getReviewTargetFooter()).isEmpty()
+        || projectConfig.forReviewBranch(
+            BranchNameKey.create(event.getProjectNameKey(), event.getRefName())) == null) {
+      return ImmutableList.of();
+    }
+
+    List<String> problems;
+    try {
+      problems = verify(event);
+    } catch (RestApiException e) {
+      problems = ImmutableList.of(e.getMessage());
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log(
+          "cannot verify commit %s in %s", event.commit.name(), event.getProjectNameKey());
+      return ImmutableList.of(new CommitValidationMessage(
+          "Review-Target could not be verified", ValidationMessage.Type.WARNING));
+    }
+    if (problems.isEmpty()) {
+      return ImmutableList.of();
+    }
+
+    List<CommitValidationMessage> messages = new ArrayList<>();
+    ValidationMessage.Type type =
+        mode == Mode.REJECT ? ValidationMessage.Type.ERROR : ValidationMessage.Type.WARNING;
+    for (String problem : problems) {
+      messages.add(new CommitValidationMessage(problem, type));
+    }
+    if (mode == Mode.REJECT) {
+      throw new CommitValidationException(
+          "commit " + event.commit.abbreviate(7).name()
+              + " does not match its Review-Target and Review-Files",
+          messages);
+    }
+    return messages;
+  }
+
+  /**
+   * @return why the commit does not match, or nothing
+   */
+  private List<String> verify(CommitReceivedEvent event) throws IOException, RestApiException {
+    try (
+        Repository repo = gitManager.openRepository(event.getProjectNameKey());
+        // a Formatter only computes ids, nothing can be inserted
+        UpdateTree update = new UpdateTree(
+            repo, event.revWalk, new ObjectInserter.Formatter(), updateUtil, rebaseUtil);
+    ) {
+      update.useCommit(event.commit);
+      if (!update.isValidReviewTarget()) {
+        return ImmutableList.of(
+            "Review-Target " + update.getReviewTarget() + " does not exist");
+      }
+
+      List<String> paths = update.findMismatchedPaths(MAX_REPORTED_PATHS + 1);
+      if (paths.isEmpty()) {
+        if (notes.isEnabled()) {
+          notes.record(
+              event.getProjectNameKey(), repo, event.commit, VerificationNotes.Stamp.of(update));
+        }
+        return ImmutableList.of();
+      }
+
+      List<String> problems = new ArrayList<>();
+      for (String path : paths.subList(0, Math.min(paths.size(), MAX_REPORTED_PATHS))) {
+        problems.add("not from Review-Target or parent: " + path);
+      }
+      if (paths.size() > MAX_REPORTED_PATHS) {
+        problems.add("and more paths");
+      }
+      return problems;
+    }
+  }
+}
@@ -0,0 +1,317 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.events.GitReferenceUpdatedListener;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Review-Target names resolved to peeled commit ids, per project.
+ *
+ * Names are looked up like `Repository.findRef`, with one exact lookup for
+ * all candidates of the search path, and with a single batched lookup for
+ * all Review-Targets of a page of changes. Unknown names are remembered as
+ * well, so that a misspelled target does not hit the ref database again.
+ *
+ * The version refs of commits are remembered too, they are dropped when any
+ * branch or tag of the project is updated.
+ *
+ * Entries are dropped when a ref which the name could resolve to is updated.
+ * Refs written without an event, e.g. by replication, are seen after
+ * {@link #EXPIRE_MINUTES} at the latest.
+ */
+@Singleton
+class ReviewTargetResolver implements GitReferenceUpdatedListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int CACHE_SIZE = 10_000;
+  // the same order as RefDatabase.SEARCH_PATH, which is used by Repository.findRef
+  private static final String[] SEARCH_PATH = {
+      "", Constants.R_REFS, Constants.R_TAGS, Constants.R_HEADS, Constants.R_REMOTES};
+  static final long EXPIRE_MINUTES = 5;
+  static final String TARGETS_CACHE = "review_targets";
+  static final String VERSIONS_CACHE = "review_target_versions";
+
+  static class Module extends CacheModule {
+    @Override
+    protected void configure() {
+      cache(TARGETS_CACHE, Key.class, new TypeLiteral<Optional<ObjectId>>() {})
+          .maximumWeight(CACHE_SIZE)
+          .expireAfterWrite(Duration.ofMinutes(EXPIRE_MINUTES));
+      cache(VERSIONS_CACHE, VersionKey.class, new TypeLiteral<Optional<String>>() {})
+          .maximumWeight(CACHE_SIZE)
+          .expireAfterWrite(Duration.ofMinutes(EXPIRE_MINUTES));
+    }
+  }
+
+  private static final class Key {
+    private final Project.NameKey project;
+    private final String name;
+
+    Key(Project.NameKey project, String name) {
+      this.project = requireNonNull(project);
+      this.name = requireNonNull(name);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return project.equals(other.project) && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(project, name);
+    }
+  }
+
+  private static final class VersionKey {
+    private final Project.NameKey project;
+    private final ObjectId commit;
+    private final String prefix;
+
+    VersionKey(Project.NameKey project, ObjectId commit, String prefix) {
+      this.project = requireNonNull(project);
+      this.commit = commit.copy();
+      this.prefix = requireNonNull(prefix);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof VersionKey)) {
+        return false;
+      }
+      VersionKey other = (VersionKey) o;
+      return project.equals(other.project) && commit.equals(other.commit) && prefix.equals(other.prefix);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(project, commit, prefix);
+    }
+  }
+
+  private final UpdateUtil updateUtil;
+  private final Cache<Key, Optional<ObjectId>> targets;
+  private final Cache<VersionKey, Optional<String>> versions;
+  // counts ref updates, so that a lookup racing with an update is not remembered
+  private final ConcurrentMap<Project.NameKey, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  @Inject
+  ReviewTargetResolver(
+      UpdateUtil updateUtil,
+      @Named(TARGETS_CACHE) Cache<Key, Optional<ObjectId>> targets,
+      @Named(VERSIONS_CACHE) Cache<VersionKey, Optional<String>> versions) {
+    this.updateUtil = requireNonNull(updateUtil);
+    this.targets = requireNonNull(targets);
+    this.versions = requireNonNull(versions);
+  }
+
+  @VisibleForTesting
+  ReviewTargetResolver(UpdateUtil updateUtil) {
+    this(updateUtil,
+        CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).expireAfterWrite(EXPIRE_MINUTES, MINUTES).build(),
+        CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).expireAfterWrite(EXPIRE_MINUTES, MINUTES).build());
+  }
+
+  /**
+   * @return the peeled id of `name`, or null if there is no such ref
+   */
+  @Nullable
+  ObjectId resolve(Project.NameKey project, Repository repo, String name) throws IOException {
+    Key key = new Key(project, name);
+    Optional<ObjectId> cached = targets.getIfPresent(key);
+    if (cached != null) {
+      return cached.orElse(null);
+    }
+
+    long generation = generation(project).get();
+    RefDatabase refDb = repo.getRefDatabase();
+    ObjectId id = peel(refDb, refDb.firstExactRef(candidates(name)));
+    remember(project, generation, key, id);
+    return id;
+  }
+
+  /**
+   * @return the name of the first ref below `prefix` pointing at `commit`, or null
+   */
+  @Nullable
+  String findVersionRef(Project.NameKey project, Repository repo, ObjectId commit, String prefix)
+      throws IOException {
+    VersionKey key = new VersionKey(project, commit, prefix);
+    Optional<String> cached = versions.getIfPresent(key);
+    if (cached != null) {
+      return cached.orElse(null);
+    }
+
+    long generation = generation(project).get();
+    String name = UpdateUtil.findVersionRef(repo, commit, prefix);
+    if (generation(project).get() == generation) {
+      versions.put(key, Optional.ofNullable(name));
+    }
+    return name;
+  }
+
+  /**
+   * Resolve the Review-Targets of all `changes` with one ref database lookup.
+   * Changes whose current commit cannot be read are skipped.
+   */
+  void prefetch(Project.NameKey project, Repository repo, RevWalk rw, Collection<Change> changes)
+      throws IOException {
+    Set<String> names = new LinkedHashSet<>();
+    for (Change change : changes) {
+      try {
+        RevCommit current = UpdateUtil.getCurrentCommit(repo, rw, change);
+        if (current != null) {
+          names.addAll(updateUtil.getFooters(current).getReviewTargets());
+        }
+      } catch (IOException e) {
+        logger.atFine().withCause(e).log("cannot read current commit of change %s", change.getId());
+      }
+    }
+    prefetch(project, repo, names);
+  }
+
+  void prefetch(Project.NameKey project, Repository repo, Collection<String> names) throws IOException {
+    List<String> missing = new ArrayList<>();
+    List<String> refNames = new ArrayList<>();
+    for (String name : names) {
+      if (targets.getIfPresent(new Key(project, name)) == null) {
+        missing.add(name);
+        refNames.addAll(List.of(candidates(name)));
+      }
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    long generation = generation(project).get();
+    RefDatabase refDb = repo.getRefDatabase();
+    Map<String, Ref> refs = refDb.exactRef(refNames.toArray(new String[0]));
+    for (String name : missing) {
+      Ref ref = null;
+      for (String candidate : candidates(name)) {
+        ref = refs.get(candidate);
+        if (ref != null) {
+          break;
+        }
+      }
+      remember(project, generation, new Key(project, name), peel(refDb, ref));
+    }
+  }
+
+  /**
+   * Resolve names with this cache and parse the commits with `rw`.
+   */
+  UpdateTree.TargetResolver forRepository(Project.NameKey project, Repository repo, RevWalk rw) {
+    return new UpdateTree.TargetResolver() {
+      @Override
+      public RevCommit resolve(String name) throws IOException {
+        ObjectId id = ReviewTargetResolver.this.resolve(project, repo, name);
+        return id != null ? rw.parseCommit(id) : null;
+      }
+
+      @Override
+      public String findVersionRef(Repository r, ObjectId commit, String prefix) throws IOException {
+        return ReviewTargetResolver.this.findVersionRef(project, r, commit, prefix);
+      }
+    };
+  }
+
+  @Override
+  public void onGitReferenceUpdated(Event event) {
+    Project.NameKey project = Project.nameKey(event.getProjectName());
+    generation(project).incrementAndGet();
+    String refName = event.getRefName();
+    for (String prefix : SEARCH_PATH) {
+      if (refName.startsWith(prefix)) {
+        targets.invalidate(new Key(project, refName.substring(prefix.length())));
+      }
+    }
+    if (!RefNames.isGerritRef(refName) && !refName.startsWith(Constants.R_NOTES)) {
+      versions.asMap().keySet().removeIf(k -> k.project.equals(project));
+    }
+  }
+
+  private AtomicLong generation(Project.NameKey project) {
+    return generations.computeIfAbsent(project, p -> new AtomicLong());
+  }
+
+  private void remember(Project.NameKey project, long generation, Key key, @Nullable ObjectId id) {
+    if (generation(project).get() == generation) {
+      targets.put(key, Optional.ofNullable(id));
+    }
+  }
+
+  private static String[] candidates(String name) {
+    String[] names = new String[SEARCH_PATH.length];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = SEARCH_PATH[i] + name;
+    }
+    return names;
+  }
+
+  @Nullable
+  private static ObjectId peel(RefDatabase refDb, @Nullable Ref ref) throws IOException {
+    if (ref == null) {
+      return null;
+    }
+    if (!ref.isPeeled()) {
+      ref = refDb.peel(ref);
+    }
+    ObjectId peeled = ref.getPeeledObjectId();
+    return peeled != null ? peeled.copy() : ref.getObjectId() != null ? ref.getObjectId().copy() : null;
+  }
+}
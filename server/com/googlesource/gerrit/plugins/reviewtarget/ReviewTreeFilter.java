@@ -0,0 +1,95 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Differences between trees which are selected by a {@link ReviewFilter}.
+ *
+ * Includes the behavior of {@link TreeFilter#ANY_DIFF}, so it can be used as
+ * the only tree filter of a RevWalk. Then JGit can skip commits with the
+ * changed-path Bloom filters of the commit-graph when the Review-Files are
+ * literal paths.
+ */
+class ReviewTreeFilter extends TreeFilter {
+  private final ReviewFilter filter;
+  // like rewritePaths, everything below a selected directory is selected
+  private String selectedDirectory;
+
+  ReviewTreeFilter(ReviewFilter filter) {
+    this.filter = requireNonNull(filter);
+  }
+
+  @Override
+  public boolean include(TreeWalk walk) throws IOException {
+    if (!ANY_DIFF.include(walk)) {
+      return false;
+    }
+    if (filter.matchAll()) {
+      return true;
+    }
+    String path = walk.getPathString();
+    if (selectedDirectory != null && path.startsWith(selectedDirectory)) {
+      return true;
+    }
+    selectedDirectory = null;
+
+    boolean isSubtree = walk.isSubtree();
+    switch (filter.isPathToBeReviewed(path, isSubtree)) {
+      case POSITIVE:
+        if (isSubtree) {
+          selectedDirectory = path + "/";
+        }
+        return true;
+      case NEGATIVE:
+        return false;
+      default:
+        // rules further down may still select something
+        return isSubtree;
+    }
+  }
+
+  @Override
+  public boolean shouldBeRecursive() {
+    return true;
+  }
+
+  @Override
+  public Optional<Set<byte[]>> getPathsBestEffort() {
+    return filter.getLiteralPaths().map(
+        paths -> paths.stream().map(p -> p.getBytes(UTF_8)).collect(Collectors.toSet()));
+  }
+
+  @Override
+  public TreeFilter clone() {
+    return new ReviewTreeFilter(filter);
+  }
+
+  @Override
+  public String toString() {
+    return "REVIEW_FILES";
+  }
+}
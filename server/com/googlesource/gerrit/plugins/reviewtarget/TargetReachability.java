@@ -0,0 +1,138 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Whether a Review-Target is part of the history of a follow branch.
+ *
+ * JGit's reachability checker uses the bitmap index when the repository has
+ * one, and the commit-graph speeds up the walk otherwise. Results are cached
+ * by commit ids: history is immutable, so a moved follow branch simply uses
+ * a new key.
+ */
+@Singleton
+class TargetReachability {
+  private static final int CACHE_SIZE = 10_000;
+  static final String CACHE_NAME = "review_target_reachability";
+
+  static class Module extends CacheModule {
+    @Override
+    protected void configure() {
+      cache(CACHE_NAME, Key.class, Boolean.class).maximumWeight(CACHE_SIZE);
+    }
+  }
+
+  private static final class Key {
+    private final ObjectId target;
+    private final ObjectId followTip;
+
+    Key(ObjectId target, ObjectId followTip) {
+      this.target = target.copy();
+      this.followTip = followTip.copy();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return target.equals(other.target) && followTip.equals(other.followTip);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(target, followTip);
+    }
+  }
+
+  private final Cache<Key, Boolean> reachable;
+
+  @Inject
+  TargetReachability(@Named(CACHE_NAME) Cache<Key, Boolean> reachable) {
+    this.reachable = requireNonNull(reachable);
+  }
+
+  @VisibleForTesting
+  TargetReachability() {
+    this(CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build());
+  }
+
+  /**
+   * The first Review-Target of `update` which is not part of the history of
+   * its follow branch, checking the targets of all groups.
+   *
+   * @return null if all are reachable
+   */
+  @Nullable
+  String findUnreachableTarget(UpdateTree update) throws IOException {
+    ObjectReader reader = update.getRevWalk().getObjectReader();
+    RevCommit followTip = update.getFollowTip();
+    if (followTip == null || !isReachable(reader, update.getTarget(), followTip)) {
+      return update.getReviewTarget();
+    }
+    for (UpdateTree.Group group : update.getExtraGroups()) {
+      if (!isReachable(reader, group.getTarget(), followTip)) {
+        return group.getReviewTarget();
+      }
+    }
+    return null;
+  }
+
+  boolean isReachable(ObjectReader reader, ObjectId target, ObjectId followTip) throws IOException {
+    if (target.equals(followTip)) {
+      return true;
+    }
+    Key key = new Key(target, followTip);
+    Boolean cached = reachable.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    boolean result;
+    // the checker marks commits, so it gets its own RevWalk
+    try (RevWalk rw = new RevWalk(reader)) {
+      RevCommit targetCommit = rw.parseCommit(target);
+      RevCommit tipCommit = rw.parseCommit(followTip);
+      result = reader.createReachabilityChecker(rw)
+          .areAllReachable(ImmutableList.of(targetCommit), Stream.of(tipCommit))
+          .isEmpty();
+    }
+    reachable.put(key, result);
+    return result;
+  }
+}
@@ -28,7 +28,10 @@ import com.google.gerrit.server.notedb.ChangeNotes;
 import com.google.gerrit.server.update.UpdateException;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.time.Instant;
 import java.time.ZoneId;
 import org.eclipse.jgit.dircache.DirCache;
@@ -40,7 +43,9 @@ import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -48,6 +53,7 @@ import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.NameConflictTreeWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.errors.ConfigInvalidException;
 
 import static java.util.Objects.requireNonNull;
@@ -57,12 +63,44 @@ class UpdateTree implements AutoCloseable {
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
+  /**
+   * A further Review-Target of the change with its own Review-Files.
+   */
+  static final class Group {
+    private final String reviewTarget;
+    private final RevCommit target;
+    private final String reviewFiles;
+    private final ReviewFilter reviewFilter;
+
+    Group(String reviewTarget, @Nullable RevCommit target, String reviewFiles, ReviewFilter reviewFilter) {
+      this.reviewTarget = requireNonNull(reviewTarget);
+      this.target = target;
+      this.reviewFiles = requireNonNull(reviewFiles);
+      this.reviewFilter = requireNonNull(reviewFilter);
+    }
+
+    String getReviewTarget() {
+      return reviewTarget;
+    }
+
+    @Nullable
+    RevCommit getTarget() {
+      return target;
+    }
+
+    String getReviewFiles() {
+      return reviewFiles;
+    }
+  }
+
   private final Repository repo;
   private final RevWalk rw;
   private final ObjectReader reader;
   private final ObjectInserter inserter;
   private final UpdateUtil updateUtil;
   private final RebaseUtil rebaseUtil;
+  private final boolean ownsHandles;
+  private TargetResolver resolver;
 
   private Change change;
   private RevCommit current;
@@ -72,11 +110,15 @@ class UpdateTree implements AutoCloseable {
   private String reviewTarget;
   private String reviewFiles;
   private ReviewFilter reviewFilter;
+  // the groups after the first one, which is kept in the fields above
+  private List<Group> extraGroups = new ArrayList<>();
   private boolean treeChanged;
   private boolean parentChanged;
   private boolean reviewTargetChanged;
   private boolean reviewFilesChanged;
   private ObjectId updatedTree;
+  private RevCommit updatedCommit;
+  private ProgressMonitor monitor = NullProgressMonitor.INSTANCE;
 
   UpdateTree(Repository repo, UpdateUtil updateUtil, RebaseUtil rebaseUtil) {
     this.updateUtil = requireNonNull(updateUtil);
@@ -86,12 +128,74 @@ class UpdateTree implements AutoCloseable {
     this.inserter = requireNonNull(repo.newObjectInserter());
     this.reader = requireNonNull(inserter.newReader());
     this.rw = new RevWalk(reader);
+    this.ownsHandles = true;
+    this.resolver = name -> updateUtil.getReferenceCommit(repo, rw, name);
+  }
+
+  /**
+   * Use a RevWalk and ObjectInserter which are shared with other instances.
+   * The RevWalk has to use a reader of the inserter. Neither is closed by this instance.
+   */
+  UpdateTree(
+      Repository repo, RevWalk rw, ObjectInserter inserter,
+      UpdateUtil updateUtil, RebaseUtil rebaseUtil) {
+    this.updateUtil = requireNonNull(updateUtil);
+    this.rebaseUtil = requireNonNull(rebaseUtil);
+    this.repo = requireNonNull(repo);
+
+    this.inserter = requireNonNull(inserter);
+    this.rw = requireNonNull(rw);
+    this.reader = rw.getObjectReader();
+    this.ownsHandles = false;
+    this.resolver = name -> updateUtil.getReferenceCommit(repo, rw, name);
   }
 
   public void close() {
-    rw.close();
-    reader.close();
-    inserter.close();
+    if (ownsHandles) {
+      rw.close();
+      reader.close();
+      inserter.close();
+    }
+  }
+
+  /**
+   * Resolves Review-Target names to commits parsed with our RevWalk
+   */
+  interface TargetResolver {
+    @Nullable
+    RevCommit resolve(String name) throws IOException;
+
+    /**
+     * The version ref of a commit, see {@link UpdateUtil#findVersionRef}.
+     */
+    @Nullable
+    default String findVersionRef(Repository repo, ObjectId commit, String prefix) throws IOException {
+      return UpdateUtil.findVersionRef(repo, commit, prefix);
+    }
+  }
+
+  /**
+   * Use a different way to resolve Review-Target names, e.g. with a cache.
+   * Has to be set before {@link #useChange}.
+   */
+  void setTargetResolver(TargetResolver resolver) {
+    this.resolver = requireNonNull(resolver);
+  }
+
+  RevWalk getRevWalk() {
+    return rw;
+  }
+
+  Repository getRepository() {
+    return repo;
+  }
+
+  /**
+   * Report each walked tree entry to the given monitor.
+   * Walks are aborted with an {@link InterruptedIOException} when the monitor is cancelled.
+   */
+  void setProgressMonitor(ProgressMonitor monitor) {
+    this.monitor = requireNonNull(monitor);
   }
 
   /**
@@ -99,16 +203,97 @@ class UpdateTree implements AutoCloseable {
    */
   public void useChange(Change change) throws RestApiException, IOException {
     this.change = requireNonNull(change);
-    current = UpdateUtil.getCurrentCommit(repo, rw, change);
+    useCommit(UpdateUtil.getCurrentCommit(repo, rw, change));
+  }
+
+  /**
+   * Select the commit which is to be updated, without an associated change
+   */
+  void useCommit(RevCommit commit) throws RestApiException, IOException {
+    current = requireNonNull(commit);
     if (current.getParentCount() != 1) {
       throw new UnprocessableEntityException("change must have a single parent");
     }
     newParent = rw.parseCommit(current.getParent(0));
-    reviewTarget = updateUtil.getReviewTarget(current);
-    target = updateUtil.getReferenceCommit(repo, rw, reviewTarget);
-    List<String> lines = updateUtil.getReviewFiles(current);
+    List<UpdateUtil.ReviewGroup> groups = updateUtil.getReviewGroups(current);
+    reviewTarget = groups.get(0).getReviewTarget();
+    target = resolver.resolve(reviewTarget);
+    List<String> lines = groups.get(0).getReviewFiles();
     reviewFiles = String.join("\n", lines);
-    reviewFilter = new ReviewFilter(lines);
+    reviewFilter = updateUtil.getReviewFilter(lines);
+    extraGroups = new ArrayList<>();
+    for (UpdateUtil.ReviewGroup group : groups.subList(1, groups.size())) {
+      extraGroups.add(newGroup(group.getReviewTarget(), String.join("\n", group.getReviewFiles())));
+    }
+  }
+
+  private Group newGroup(String targetName, String lines) throws IOException {
+    return new Group(targetName, resolver.resolve(targetName), lines, updateUtil.getReviewFilter(lines));
+  }
+
+  /**
+   * Replace all (Review-Target, Review-Files) groups, the first one like
+   * {@link #newReviewTarget} and {@link #newReviewFiles}.
+   */
+  void newReviewGroups(List<String> targetNames, List<String> lines) throws IOException {
+    if (targetNames.isEmpty() || targetNames.size() != lines.size()) {
+      throw new IllegalArgumentException("need the same number of targets and files, at least one");
+    }
+    newReviewTarget(targetNames.get(0));
+    newReviewFiles(lines.get(0));
+
+    List<Group> groups = new ArrayList<>();
+    for (int i = 1; i < targetNames.size(); i++) {
+      groups.add(newGroup(targetNames.get(i), lines.get(i)));
+    }
+    if (!sameGroups(groups, extraGroups)) {
+      extraGroups = groups;
+      reviewTargetChanged = true;
+      reviewFilesChanged = true;
+    }
+  }
+
+  private static boolean sameGroups(List<Group> a, List<Group> b) {
+    if (a.size() != b.size()) {
+      return false;
+    }
+    for (int i = 0; i < a.size(); i++) {
+      if (!a.get(i).reviewTarget.equals(b.get(i).reviewTarget)
+          || !a.get(i).reviewFiles.equals(b.get(i).reviewFiles)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The groups after the first one, empty for a single Review-Target.
+   */
+  List<Group> getExtraGroups() {
+    return extraGroups;
+  }
+
+  /**
+   * All Review-Files selections and the targets of further groups,
+   * which identify the result of {@link #rewritePaths} for a parent.
+   */
+  String getSelection() {
+    if (extraGroups.isEmpty()) {
+      return reviewFiles;
+    }
+    StringBuilder selection = new StringBuilder(reviewFiles);
+    for (Group group : extraGroups) {
+      selection.append('\0').append(group.target.name()).append('\n').append(group.reviewFiles);
+    }
+    return selection.toString();
+  }
+
+  /**
+   * Resolve any ref name like a Review-Target.
+   */
+  @Nullable
+  RevCommit resolve(String name) throws IOException {
+    return resolver.resolve(name);
   }
 
   public void newReviewTarget(String targetName) throws IOException {
@@ -116,7 +301,7 @@ class UpdateTree implements AutoCloseable {
       return;
     reviewTarget = targetName;
     reviewTargetChanged = true;
-    target = updateUtil.getReferenceCommit(repo, rw, reviewTarget);
+    target = resolver.resolve(reviewTarget);
   }
 
   public String getReviewTarget() {
@@ -124,11 +309,37 @@ class UpdateTree implements AutoCloseable {
   }
 
   public boolean isValidReviewTarget() {
-    return target != null;
+    if (target == null) {
+      return false;
+    }
+    for (Group group : extraGroups) {
+      if (group.target == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  RevCommit getCurrentCommit() {
+    return current;
+  }
+
+  @Nullable
+  RevCommit getTarget() {
+    return target;
+  }
+
+  RevCommit getParent() {
+    return newParent;
+  }
+
+  @Nullable
+  RevCommit getFollowTip() {
+    return followBranch;
   }
 
   public void useFollowBranch(String branchName) throws IOException {
-    followBranch = updateUtil.getReferenceCommit(repo, rw, branchName);
+    followBranch = resolver.resolve(branchName);
     if (followBranch == null) {
       logger.atWarning().log("followBranch %s does not exist", branchName);
     }
@@ -139,7 +350,7 @@ class UpdateTree implements AutoCloseable {
       return;
     reviewFiles = lines;
     reviewFilesChanged = true;
-    reviewFilter = new ReviewFilter(lines);
+    reviewFilter = updateUtil.getReviewFilter(lines);
   }
 
   /**
@@ -148,13 +359,17 @@ class UpdateTree implements AutoCloseable {
   public void useReviewFilesFooter(String footerName) {
     List<String> lines = current.getFooterLines(footerName);
     reviewFiles = String.join("\n", lines);
-    reviewFilter = new ReviewFilter(lines);
+    reviewFilter = updateUtil.getReviewFilter(lines);
   }
 
   public String getReviewFiles() {
     return reviewFiles;
   }
 
+  ReviewFilter getReviewFilter() {
+    return reviewFilter;
+  }
+
   void rebaseWhenNecessary(PatchSet patchset) throws IOException {
     try {
       // find a new parent commit based on new version of parent change/branch
@@ -170,13 +385,63 @@ class UpdateTree implements AutoCloseable {
   }
 
   /**
-   * Walk all paths and choose elements from either the parent or the target tree
+   * Which groups select the paths. Later groups take precedence, like later
+   * lines of a Review-Files selection.
+   */
+  private GroupSelection groupSelection() {
+    List<ReviewFilter> filters = new ArrayList<>(extraGroups.size() + 1);
+    filters.add(reviewFilter);
+    for (Group g : extraGroups) {
+      filters.add(g.reviewFilter);
+    }
+    return new GroupSelection(filters);
+  }
+
+  /**
+   * Remember the group of an entered directory for its entries.
+   * @param inherited the group of each entered directory, by depth
+   */
+  private static void enter(TreeWalk walk, List<Integer> inherited, int group) throws IOException {
+    inherited.subList(walk.getDepth(), inherited.size()).clear();
+    inherited.add(group);
+    walk.enterSubtree();
+  }
+
+  private static int inherited(TreeWalk walk, List<Integer> inherited) {
+    return walk.getDepth() == 0 ? GroupSelection.PARENT : inherited.get(walk.getDepth() - 1);
+  }
+
+  /**
+   * Add the trees of all targets to the walk.
+   * @return the tree index of each group
+   */
+  private int[] addTargetTrees(TreeWalk walk) throws IOException {
+    int[] ids = new int[extraGroups.size() + 1];
+    ids[0] = walk.addTree(rw.parseTree(target.getTree()));
+    for (int g = 1; g < ids.length; g++) {
+      ids[g] = walk.addTree(rw.parseTree(extraGroups.get(g - 1).target.getTree()));
+    }
+    return ids;
+  }
+
+  private static boolean sameInAllTrees(TreeWalk walk) {
+    for (int i = 1; i < walk.getTreeCount(); i++) {
+      if (!walk.idEqual(0, i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Walk all paths and choose elements from either the parent or one of the target trees.
+   *
+   * All groups are composed in a single walk over the parent and all target trees.
    */
   void rewritePaths() throws IOException {
-    RevTree targetTree = rw.parseTree(target.getTree());
-    if (reviewFilter.matchAll()) {
+    if (extraGroups.isEmpty() && reviewFilter.matchAll()) {
       // Without a Review-Files specification, use the whole Review-Target
-      this.updatedTree = targetTree;
+      this.updatedTree = rw.parseTree(target.getTree());
       return;
     }
 
@@ -189,23 +454,27 @@ class UpdateTree implements AutoCloseable {
 
     TreeWalk walk = new NameConflictTreeWalk(repo, reader);
     int idPar = walk.addTree(parentTree);
-    int idTar = walk.addTree(targetTree);
+    int[] idGroups = addTargetTrees(walk);
+    GroupSelection selection = groupSelection();
+    List<Integer> inherited = new ArrayList<>();
 
     while (walk.next()) {
+      progress();
 
-      int id;
       boolean isSubtree = walk.isSubtree();
-      String path = walk.getPathString();
-      ReviewFilter.Selected selected = reviewFilter.isPathToBeReviewed(path, isSubtree);
-
-      if (selected == ReviewFilter.Selected.POSITIVE) {
-        id = idTar;
-      } else {
-        id = idPar;
-      }
-      if (isSubtree && selected == ReviewFilter.Selected.NO_MATCH) {
-        // not decided yet, have to check individual contents of tree
-        walk.enterSubtree();
+      int selected = selection.select(walk.getPathString(), isSubtree, inherited(walk, inherited));
+      int group = GroupSelection.group(selected);
+      int id = group >= 0 ? idGroups[group] : idPar;
+
+      if (GroupSelection.isUndecided(selected)) {
+        if (sameInAllTrees(walk)) {
+          // the same whatever is selected inside
+          walk.getObjectId(oid, idPar);
+          builder.addTree(walk.getRawPath(), 0, reader, oid);
+        } else {
+          // not decided yet, have to check individual contents of tree
+          enter(walk, inherited, group);
+        }
       } else if (isSubtree) {
         // add whole directory
         walk.getObjectId(oid, id);
@@ -228,15 +497,66 @@ class UpdateTree implements AutoCloseable {
     this.treeChanged = !updatedTree.equals(current.getTree());
   }
 
+  /**
+   * Compare the current tree with the result of {@link #rewritePaths}
+   * without writing any objects.
+   *
+   * Directories which are identical in all trees are not entered.
+   *
+   * @param limit stop after this many differences
+   * @return the paths which differ, directories end with `/`; empty if the
+   *     current tree has exactly the selected paths
+   */
+  List<String> findMismatchedPaths(int limit) throws IOException {
+    List<String> mismatched = new ArrayList<>();
+    RevTree currentTree = rw.parseTree(current.getTree());
+    RevTree parentTree = rw.parseTree(newParent.getTree());
+
+    TreeWalk walk = new NameConflictTreeWalk(repo, reader);
+    int idCur = walk.addTree(currentTree);
+    int idPar = walk.addTree(parentTree);
+    int[] idGroups = addTargetTrees(walk);
+    GroupSelection selection = groupSelection();
+    List<Integer> inherited = new ArrayList<>();
+
+    while (walk.next() && mismatched.size() < limit) {
+      progress();
+
+      boolean isSubtree = walk.isSubtree();
+      String path = walk.getPathString();
+      int selected = selection.select(path, isSubtree, inherited(walk, inherited));
+      int group = GroupSelection.group(selected);
+      int id = group >= 0 ? idGroups[group] : idPar;
+
+      if (GroupSelection.isUndecided(selected)) {
+        if (!sameInAllTrees(walk)) {
+          enter(walk, inherited, group);
+        }
+      } else if (!walk.idEqual(idCur, id) || walk.getRawMode(idCur) != walk.getRawMode(id)) {
+        mismatched.add(isSubtree ? path + "/" : path);
+      }
+    }
+    return mismatched;
+  }
+
+  private void progress() throws InterruptedIOException {
+    monitor.update(1);
+    if (monitor.isCancelled()) {
+      throw new InterruptedIOException("tree walk cancelled");
+    }
+  }
+
   boolean hasCurrentPaths() throws IOException {
     RevTree currentTree = rw.parseTree(current.getTree());
     return this.updatedTree.equals(currentTree);
   }
   /**
-   * Walk all paths and TBD
+   * Classify the paths which differ between the current and the rewritten
+   * tree, taking a rebase into account.
+   *
+   * Directories which are the same in all four trees are not entered.
    */
   void getChangedPaths(List<String> added, List<String> updated, List<String> removed) throws IOException {
-    current = UpdateUtil.getCurrentCommit(repo, rw, change);
     RevCommit oldParent = rw.parseCommit(current.getParent(0));
 
     RevTree currentTree = rw.parseTree(current.getTree());
@@ -248,9 +568,11 @@ class UpdateTree implements AutoCloseable {
     int idNew = walk.addTree(updatedTree);
     int idOldPar = walk.addTree(oldParentTree);
     int idNewPar = walk.addTree(newParentTree);
+    walk.setFilter(TreeFilter.ANY_DIFF);
     walk.setRecursive(true);
 
     while (walk.next()) {
+      progress();
 
       FileMode modeOld = walk.getFileMode(idOld);
       FileMode modeNew = walk.getFileMode(idNew);
@@ -277,21 +599,42 @@ class UpdateTree implements AutoCloseable {
     }
   }
 
+  /**
+   * The blobs of all files which differ between the current and the
+   * rewritten tree. A file missing on one side has the zero id.
+   */
+  void getChangedBlobs(Map<String, ObjectId> oldBlobs, Map<String, ObjectId> newBlobs)
+      throws IOException {
+    TreeWalk walk = new TreeWalk(repo, reader);
+    int idOld = walk.addTree(rw.parseTree(current.getTree()));
+    int idNew = walk.addTree(updatedTree);
+    walk.setFilter(TreeFilter.ANY_DIFF);
+    walk.setRecursive(true);
+
+    while (walk.next()) {
+      String path = walk.getPathString();
+      oldBlobs.put(path, walk.getFileMode(idOld) == FileMode.MISSING ? ObjectId.zeroId() : walk.getObjectId(idOld));
+      newBlobs.put(path, walk.getFileMode(idNew) == FileMode.MISSING ? ObjectId.zeroId() : walk.getObjectId(idNew));
+    }
+  }
+
   private String _getVersion(RevCommit commit, String prefix, String dropPrefix) throws IOException {
     assert commit != null;
-    for (Ref ref : repo.getRefDatabase().getTipsWithSha1(commit)) {
-      var name = ref.getName();
-      if (name.startsWith(prefix)) {
-        if (name.startsWith(dropPrefix)) {
-          name = name.substring(dropPrefix.length());
-        }
-        return name;
+    String name = resolver.findVersionRef(repo, commit, prefix);
+    if (name != null) {
+      if (name.startsWith(dropPrefix)) {
+        name = name.substring(dropPrefix.length());
       }
+      return name;
     }
 
     return commit.getId().abbreviate(7).name();
   }
 
+  String getVersion(RevCommit commit, String prefix, String dropPrefix) throws IOException {
+    return _getVersion(commit, prefix, dropPrefix);
+  }
+
   public String getTargetVersion(String prefix, String dropPrefix) throws IOException {
     return _getVersion(target, prefix, dropPrefix);
   }
@@ -317,12 +660,21 @@ class UpdateTree implements AutoCloseable {
     }
 
     RevCommit updated = getUpdatedCommit(user, message);
+    this.updatedCommit = updated;
     String patchSetDesc = getPatchSetDescription();
     String patchSetMsg = getPatchSetMessage();
 
     return updateUtil.createPatchSet(repo, rw, inserter, user, change, updated, patchSetDesc, patchSetMsg, notes);
   }
 
+  /**
+   * The commit of the patch set created by {@link #createPatchSet}, if any.
+   */
+  @Nullable
+  RevCommit getUpdatedCommit() {
+    return updatedCommit;
+  }
+
   /**
    * Get the commit message for the updated commit.
    * @param original the old message
@@ -333,10 +685,32 @@ class UpdateTree implements AutoCloseable {
   private String getUpdatedMessage(String original, String reviewTargetFooter, String reviewFilesFooter) {
     String message = original;
 
-    message = updateUtil.insertFooters(message, reviewTargetFooter, reviewTarget);
-    message = updateUtil.insertFooters(message, reviewFilesFooter, reviewFiles);
+    if (extraGroups.isEmpty()) {
+      message = updateUtil.insertFooters(message, reviewTargetFooter, reviewTarget);
+      message = updateUtil.insertFooters(message, reviewFilesFooter, reviewFiles);
+      return message;
+    }
 
-    return message;
+    // several groups: the order of the footers matters, write them again group by group
+    message = updateUtil.insertFooters(message, reviewTargetFooter, "");
+    message = updateUtil.insertFooters(message, reviewFilesFooter, "");
+    StringBuilder footers = new StringBuilder(message);
+    appendGroup(footers, reviewTargetFooter, reviewTarget, reviewFilesFooter, reviewFiles);
+    for (Group group : extraGroups) {
+      appendGroup(footers, reviewTargetFooter, group.reviewTarget, reviewFilesFooter, group.reviewFiles);
+    }
+    return footers.toString();
+  }
+
+  private static void appendGroup(
+      StringBuilder message, String targetFooter, String target, String filesFooter, String files) {
+    message.append(targetFooter).append(": ").append(target).append('\n');
+    for (String line : files.split("\n")) {
+      line = line.strip();
+      if (!line.isEmpty()) {
+        message.append(filesFooter).append(": ").append(line).append('\n');
+      }
+    }
   }
 
   /**
@@ -14,29 +14,42 @@
 
 package com.googlesource.gerrit.plugins.reviewtarget;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
 
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Change;
 import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.extensions.api.changes.NotifyHandling;
+import com.google.gerrit.extensions.restapi.ResourceConflictException;
 import com.google.gerrit.extensions.restapi.RestApiException;
 import com.google.gerrit.extensions.restapi.UnprocessableEntityException;
 import com.google.gerrit.server.ChangeUtil;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.change.NotifyResolver;
+import com.google.gerrit.server.cache.CacheModule;
 import com.google.gerrit.server.change.PatchSetInserter;
 import com.google.gerrit.server.notedb.ChangeNotes;
 import com.google.gerrit.server.update.BatchUpdate;
+import com.google.gerrit.server.update.BatchUpdateOp;
+import com.google.gerrit.server.update.ChangeContext;
 import com.google.gerrit.server.update.UpdateException;
 import com.google.gerrit.server.util.time.TimeUtil;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.revwalk.FooterKey;
+import org.eclipse.jgit.revwalk.FooterLine;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.errors.ConfigInvalidException;
@@ -48,48 +61,178 @@ import static java.util.Objects.requireNonNull;
 class UpdateUtil {
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int FOOTER_CACHE_SIZE = 10_000;
+  private static final int FILTER_CACHE_SIZE = 1_000;
+  static final String FOOTERS_CACHE = "review_footers";
+  static final String FILTERS_CACHE = "review_filters";
+
+  static class Module extends CacheModule {
+    @Override
+    protected void configure() {
+      // commits are immutable, so their footers never have to be invalidated
+      cache(FOOTERS_CACHE, ObjectId.class, Footers.class).maximumWeight(FOOTER_CACHE_SIZE);
+      // changes with the same selection share one compiled filter
+      cache(FILTERS_CACHE, String.class, ReviewFilter.class).maximumWeight(FILTER_CACHE_SIZE);
+    }
+  }
+
+  /**
+   * A Review-Target with the Review-Files footers which follow it.
+   */
+  static final class ReviewGroup {
+    private final String reviewTarget;
+    private final ImmutableList<String> reviewFiles;
+
+    ReviewGroup(String reviewTarget, List<String> reviewFiles) {
+      this.reviewTarget = requireNonNull(reviewTarget);
+      this.reviewFiles = ImmutableList.copyOf(reviewFiles);
+    }
+
+    String getReviewTarget() {
+      return reviewTarget;
+    }
+
+    ImmutableList<String> getReviewFiles() {
+      return reviewFiles;
+    }
+  }
+
+  /**
+   * The Review footers of a commit message.
+   *
+   * Every Review-Target starts a new group. Review-Files footers belong to
+   * the Review-Target before them, or to the first one if there is none.
+   */
+  static final class Footers {
+    private final ImmutableList<String> reviewTargets;
+    private final ImmutableList<String> reviewFiles;
+    private final ImmutableList<ReviewGroup> groups;
+
+    Footers(List<String> reviewTargets, List<String> reviewFiles, List<ReviewGroup> groups) {
+      this.reviewTargets = ImmutableList.copyOf(reviewTargets);
+      this.reviewFiles = ImmutableList.copyOf(reviewFiles);
+      this.groups = ImmutableList.copyOf(groups);
+    }
+
+    ImmutableList<String> getReviewTargets() {
+      return reviewTargets;
+    }
+
+    ImmutableList<String> getReviewFiles() {
+      return reviewFiles;
+    }
+
+    ImmutableList<ReviewGroup> getGroups() {
+      return groups;
+    }
+  }
 
   private final Configuration cfg;
   private final PatchSetInserter.Factory patchSetInserterFactory;
   private final NotifyResolver notifyResolver;
   private final BatchUpdate.Factory updateFactory;
+  private final Cache<ObjectId, Footers> footers;
+  private final Cache<String, ReviewFilter> filters;
 
   @Inject
   UpdateUtil(
       Configuration cfg,
       PatchSetInserter.Factory patchSetInserterFactory,
       BatchUpdate.Factory updateFactory,
-      NotifyResolver notifyResolver) {
+      NotifyResolver notifyResolver,
+      @Named(FOOTERS_CACHE) Cache<ObjectId, Footers> footers,
+      @Named(FILTERS_CACHE) Cache<String, ReviewFilter> filters) {
     this.cfg = requireNonNull(cfg);
     this.patchSetInserterFactory = requireNonNull(patchSetInserterFactory);
     this.updateFactory = requireNonNull(updateFactory);
     this.notifyResolver = requireNonNull(notifyResolver);
+    this.footers = requireNonNull(footers);
+    this.filters = requireNonNull(filters);
+  }
+
+  @VisibleForTesting
+  UpdateUtil(
+      Configuration cfg,
+      PatchSetInserter.Factory patchSetInserterFactory,
+      BatchUpdate.Factory updateFactory,
+      NotifyResolver notifyResolver) {
+    this(cfg, patchSetInserterFactory, updateFactory, notifyResolver,
+        CacheBuilder.newBuilder().maximumSize(FOOTER_CACHE_SIZE).build(),
+        CacheBuilder.newBuilder().maximumSize(FILTER_CACHE_SIZE).build());
   }
 
   RevCommit getReferenceCommit(Repository repo, RevWalk rw, String refName) throws IOException {
-    Ref refRef = repo.findRef(refName);
-    if (refRef == null)
+    Ref ref = repo.findRef(refName);
+    if (ref == null || ref.getObjectId() == null)
       return null;
 
-    ObjectId refId = repo.findRef(refName).getObjectId();
-    if (refId == null)
-      return null;
+    return rw.parseCommit(ref.getObjectId());
+  }
+
+  /**
+   * The (Review-Target, Review-Files) groups of a commit, at least one.
+   */
+  List<ReviewGroup> getReviewGroups(RevCommit current) throws RestApiException {
+    List<ReviewGroup> groups = getFooters(current).getGroups();
+    if (groups.isEmpty()) {
+      throw new UnprocessableEntityException("need at least one Review-Target footer");
+    }
+    return groups;
+  }
+
+  /**
+   * The Review footers of a commit, the message is parsed only once per commit.
+   */
+  Footers getFooters(RevCommit current) {
+    Footers cached = footers.getIfPresent(current);
+    if (cached != null) {
+      return cached;
+    }
+    Footers parsed = parseFooters(current);
+    footers.put(current.copy(), parsed);
+    return parsed;
+  }
+
+  private Footers parseFooters(RevCommit current) {
+    FooterKey targetFooter = new FooterKey(cfg.getReviewTargetFooter());
+    FooterKey filesFooter = new FooterKey(cfg.getReviewFilesFooter());
+    List<String> targets = new ArrayList<>();
+    List<String> files = new ArrayList<>();
+    // the Review-Files lines of each Review-Target, leading ones belong to the first
+    List<List<String>> groupFiles = new ArrayList<>();
+    List<String> leadingFiles = new ArrayList<>();
+    for (FooterLine footer : current.getFooterLines()) {
+      if (footer.matches(targetFooter)) {
+        targets.add(footer.getValue());
+        groupFiles.add(new ArrayList<>(groupFiles.isEmpty() ? leadingFiles : List.of()));
+      } else if (footer.matches(filesFooter)) {
+        files.add(footer.getValue());
+        (groupFiles.isEmpty() ? leadingFiles : groupFiles.get(groupFiles.size() - 1))
+            .add(footer.getValue());
+      }
+    }
 
-    return rw.parseCommit(refId);
+    List<ReviewGroup> groups = new ArrayList<>();
+    for (int i = 0; i < targets.size(); i++) {
+      groups.add(new ReviewGroup(targets.get(i), groupFiles.get(i)));
+    }
+    return new Footers(targets, files, groups);
   }
 
-  public String getReviewTarget(RevCommit current) throws RestApiException {
-    String footerName = cfg.getReviewTargetFooter();
-    List<String> footerLines = current.getFooterLines(footerName);
-    if (footerLines.size() != 1) {
-      throw new UnprocessableEntityException("need exactly one Review-Target footer");
+  /**
+   * The compiled filter for Review-Files lines, shared by all identical selections.
+   */
+  ReviewFilter getReviewFilter(List<String> lines) {
+    String normalized = ReviewFilter.normalize(lines);
+    try {
+      return filters.get(normalized, () -> new ReviewFilter(normalized));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
     }
-    return footerLines.get(0);
   }
 
-  public List<String> getReviewFiles(RevCommit current) {
-    String footerName = cfg.getReviewFilesFooter();
-    return current.getFooterLines(footerName);
+  ReviewFilter getReviewFilter(String lines) {
+    return getReviewFilter(List.of(lines.split("\n")));
   }
 
   private boolean hasChangeId(String message, int start) {
@@ -175,6 +318,7 @@ class UpdateUtil {
     try (BatchUpdate bu = updateFactory.create(change.getProject(), user, TimeUtil.now())) {
       bu.setRepository(repo, rw, inserter);
       bu.setNotify(notifyResolver.resolve(NotifyHandling.ALL, null));
+      bu.addOp(change.getId(), new AssertCurrentPatchSet(change.currentPatchSetId()));
       bu.addOp(change.getId(), patchSet);
       bu.execute();
     }
@@ -183,6 +327,44 @@ class UpdateUtil {
     return psId.get();
   }
 
+  /**
+   * Fail with a conflict when another patch set was created since the update was computed.
+   *
+   * This is checked against the change state read by the BatchUpdate itself,
+   * so that concurrent updates get a clear error instead of a lock failure.
+   */
+  private static class AssertCurrentPatchSet implements BatchUpdateOp {
+    private final PatchSet.Id expected;
+
+    AssertCurrentPatchSet(PatchSet.Id expected) {
+      this.expected = requireNonNull(expected);
+    }
+
+    @Override
+    public boolean updateChange(ChangeContext ctx) throws ResourceConflictException {
+      PatchSet.Id current = ctx.getChange().currentPatchSetId();
+      if (!expected.equals(current)) {
+        throw new ResourceConflictException(String.format(
+            "patch set %d was created concurrently, expected patch set %d",
+            current.get(), expected.get()));
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The name of the first ref below `prefix` which points at `commit`.
+   */
+  @Nullable
+  static String findVersionRef(Repository repo, ObjectId commit, String prefix) throws IOException {
+    for (Ref ref : repo.getRefDatabase().getTipsWithSha1(commit)) {
+      if (ref.getName().startsWith(prefix)) {
+        return ref.getName();
+      }
+    }
+    return null;
+  }
+
   @Nullable
   public static RevCommit getCurrentCommit(Repository repo, RevWalk rw, Change change) throws IOException {
     PatchSet.Id id = change.currentPatchSetId();
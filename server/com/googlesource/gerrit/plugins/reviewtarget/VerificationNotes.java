@@ -0,0 +1,251 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.GerritPersonIdent;
+import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.notes.NoteMap;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+
+/**
+ * Successful `has:selected` verifications, stored as git notes on the patch set commits.
+ *
+ * A stamp records the ids of everything the result depends on. As long as the
+ * Review-Target still resolves to the same commit, the stamp can be trusted
+ * without walking any trees, on every node which has the notes ref.
+ *
+ * Stamps are only written after the server compared the trees itself: by
+ * the commit validator and when a change is updated through the plugin.
+ * Queries only read them. Users cannot update the ref through Gerrit, see
+ * {@link VerificationNotesRefValidator}.
+ */
+@Singleton
+class VerificationNotes {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  static final String NOTES_REF = "refs/notes/review-target";
+  private static final int MAX_STAMP_SIZE = 4096;
+  private static final int MAX_ATTEMPTS = 3;
+
+  /**
+   * The inputs of a verification: the target commit, the tree of the parent,
+   * and the Review-Files selection as the id of a blob with its text,
+   * including the targets of further groups.
+   */
+  static final class Stamp {
+    private final ObjectId target;
+    private final ObjectId parentTree;
+    private final ObjectId filter;
+
+    Stamp(ObjectId target, ObjectId parentTree, ObjectId filter) {
+      this.target = target.copy();
+      this.parentTree = parentTree.copy();
+      this.filter = filter.copy();
+    }
+
+    static Stamp of(UpdateTree update) {
+      ObjectId filter = new ObjectInserter.Formatter()
+          .idFor(OBJ_BLOB, update.getSelection().getBytes(UTF_8));
+      return new Stamp(update.getTarget(), update.getParent().getTree(), filter);
+    }
+
+    byte[] format() {
+      return ("target " + target.name() + "\n"
+          + "parent-tree " + parentTree.name() + "\n"
+          + "filter " + filter.name() + "\n").getBytes(UTF_8);
+    }
+
+    @Nullable
+    static Stamp parse(byte[] data) {
+      ObjectId target = null;
+      ObjectId parentTree = null;
+      ObjectId filter = null;
+      for (String line : new String(data, UTF_8).split("\n")) {
+        int space = line.indexOf(' ');
+        if (space < 0 || !ObjectId.isId(line.substring(space + 1))) {
+          continue;
+        }
+        ObjectId id = ObjectId.fromString(line.substring(space + 1));
+        switch (line.substring(0, space)) {
+          case "target":
+            target = id;
+            break;
+          case "parent-tree":
+            parentTree = id;
+            break;
+          case "filter":
+            filter = id;
+            break;
+          default:
+            break;
+        }
+      }
+      if (target == null || parentTree == null || filter == null) {
+        return null;
+      }
+      return new Stamp(target, parentTree, filter);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Stamp)) {
+        return false;
+      }
+      Stamp other = (Stamp) o;
+      return target.equals(other.target)
+          && parentTree.equals(other.parentTree)
+          && filter.equals(other.filter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(target, parentTree, filter);
+    }
+  }
+
+  private final Configuration cfg;
+  private final GitReferenceUpdated gitRefUpdated;
+  private final Provider<PersonIdent> serverIdent;
+
+  @Inject
+  VerificationNotes(
+      Configuration cfg,
+      GitReferenceUpdated gitRefUpdated,
+      @GerritPersonIdent Provider<PersonIdent> serverIdent) {
+    this.cfg = requireNonNull(cfg);
+    this.gitRefUpdated = requireNonNull(gitRefUpdated);
+    this.serverIdent = requireNonNull(serverIdent);
+  }
+
+  boolean isEnabled() {
+    return cfg.getRecordVerification();
+  }
+
+  /**
+   * Whether a stamp with exactly these inputs is stored for the current commit of `update`.
+   */
+  boolean isVerified(UpdateTree update, Stamp stamp) throws IOException {
+    Stamp stored = read(update.getRepository(), update.getRevWalk(), update.getCurrentCommit());
+    return stamp.equals(stored);
+  }
+
+  @VisibleForTesting
+  @Nullable
+  static Stamp read(Repository repo, RevWalk rw, ObjectId commit) throws IOException {
+    Ref ref = repo.exactRef(NOTES_REF);
+    if (ref == null) {
+      return null;
+    }
+    ObjectReader reader = rw.getObjectReader();
+    return read(NoteMap.read(reader, rw.parseCommit(ref.getObjectId())), reader, commit);
+  }
+
+  /**
+   * Store the stamp for `commit`. Failures are only logged, the stamp is an optimization.
+   */
+  void record(Project.NameKey project, Repository repo, ObjectId commit, Stamp stamp) {
+    try {
+      RefUpdate ru = write(repo, commit, stamp);
+      if (ru != null) {
+        gitRefUpdated.fire(project, ru, null);
+      }
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log(
+          "cannot record verification of %s in %s", commit.name(), project);
+    }
+  }
+
+  @Nullable
+  private RefUpdate write(Repository repo, ObjectId commit, Stamp stamp) throws IOException {
+    try (
+        ObjectInserter inserter = repo.newObjectInserter();
+        ObjectReader reader = inserter.newReader();
+        RevWalk rw = new RevWalk(reader);
+    ) {
+      for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+        Ref ref = repo.exactRef(NOTES_REF);
+        RevCommit parent = ref != null ? rw.parseCommit(ref.getObjectId()) : null;
+        NoteMap notes = parent != null ? NoteMap.read(reader, parent) : NoteMap.newEmptyMap();
+        if (stamp.equals(read(notes, reader, commit))) {
+          // another node was faster
+          return null;
+        }
+        notes.set(commit, inserter.insert(OBJ_BLOB, stamp.format()));
+
+        PersonIdent ident = serverIdent.get();
+        CommitBuilder cb = new CommitBuilder();
+        cb.setTreeId(notes.writeTree(inserter));
+        if (parent != null) {
+          cb.setParentId(parent);
+        }
+        cb.setAuthor(ident);
+        cb.setCommitter(ident);
+        cb.setMessage("Verified " + commit.name() + "\n");
+        ObjectId id = inserter.insert(cb);
+        inserter.flush();
+
+        RefUpdate ru = repo.updateRef(NOTES_REF);
+        ru.setExpectedOldObjectId(parent != null ? parent : ObjectId.zeroId());
+        ru.setNewObjectId(id);
+        RefUpdate.Result result = ru.update(rw);
+        switch (result) {
+          case NEW:
+          case FAST_FORWARD:
+            return ru;
+          case LOCK_FAILURE:
+            continue;
+          default:
+            throw new IOException("cannot update " + NOTES_REF + ": " + result);
+        }
+      }
+    }
+    logger.atFine().log("gave up recording verification of %s after concurrent updates", commit.name());
+    return null;
+  }
+
+  @Nullable
+  private static Stamp read(NoteMap notes, ObjectReader reader, ObjectId commit) throws IOException {
+    ObjectId blob = notes.get(commit);
+    if (blob == null) {
+      return null;
+    }
+    return Stamp.parse(reader.open(blob, OBJ_BLOB).getCachedBytes(MAX_STAMP_SIZE));
+  }
+}
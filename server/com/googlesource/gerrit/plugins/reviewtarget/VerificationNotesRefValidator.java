@@ -0,0 +1,43 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.server.events.RefReceivedEvent;
+import com.google.gerrit.server.git.validators.RefOperationValidationListener;
+import com.google.gerrit.server.git.validators.ValidationMessage;
+import com.google.gerrit.server.validators.ValidationException;
+import com.google.inject.Singleton;
+
+import java.util.List;
+
+/**
+ * Rejects pushes and other ref operations by users on the verification notes.
+ *
+ * A stamp in {@link VerificationNotes#NOTES_REF} makes `has:selected` true
+ * without looking at any trees, so only the server itself may write it.
+ */
+@Singleton
+class VerificationNotesRefValidator implements RefOperationValidationListener {
+  @Override
+  public List<ValidationMessage> onRefOperation(RefReceivedEvent event)
+      throws ValidationException {
+    if (VerificationNotes.NOTES_REF.equals(event.getRefName())) {
+      throw new ValidationException(VerificationNotes.NOTES_REF + " is maintained by the server");
+    }
+    return ImmutableList.of();
+  }
+}
@@ -0,0 +1,179 @@
+// Copyright (C) 2026 Siemens Mobility GmbH
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.common.data.GlobalCapability;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.annotations.RequiresAnyCapability;
+import com.google.gerrit.json.OutputFormat;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.google.gerrit.sshd.CommandMetaData;
+import com.google.gerrit.sshd.SshCommand;
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.kohsuke.args4j.Option;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Check many review changes for audits and stream one JSON line per change.
+ *
+ * Uses the same checks as `has:selected`. The changes of a project share
+ * one repository, and at most `--threads` of them are checked at a time.
+ */
+@CommandMetaData(name = "verify", description = "Check whether review changes match their Review-Target")
+@RequiresAnyCapability({GlobalCapability.ADMINISTRATE_SERVER, GlobalCapability.MAINTAIN_SERVER})
+final class VerifyCommand extends SshCommand {
+
+  static class VerifyInfo {
+    String project;
+    String branch;
+    int change;
+    int patchSet;
+    MatchReviewTarget.Result result;
+  }
+
+  private final Provider<InternalChangeQuery> queryProvider;
+  private final GitRepositoryManager gitManager;
+  private final MatchReviewTarget matchReviewTarget;
+  private final ReviewTargetResolver targetResolver;
+  private final ProjectConfigCache projectConfig;
+  private final Configuration cfg;
+  private final List<Project.NameKey> projects = new ArrayList<>();
+
+  @Option(name = "--project", aliases = {"-p"}, metaVar = "PROJECT", required = true,
+      usage = "project to check, can be repeated")
+  void addProject(String name) {
+    projects.add(Project.nameKey(name));
+  }
+
+  @Option(name = "--branch", aliases = {"-b"}, metaVar = "BRANCH",
+      usage = "only check changes for this branch, all review branches by default")
+  private String branch;
+
+  @Option(name = "--include-closed", usage = "also check merged and abandoned changes")
+  private boolean includeClosed;
+
+  @Option(name = "--threads", metaVar = "CNT", usage = "number of changes checked at the same time")
+  private int threads = 2;
+
+  @Inject
+  VerifyCommand(
+      Provider<InternalChangeQuery> queryProvider,
+      GitRepositoryManager gitManager,
+      MatchReviewTarget matchReviewTarget,
+      ReviewTargetResolver targetResolver,
+      ProjectConfigCache projectConfig,
+      Configuration cfg) {
+    this.queryProvider = requireNonNull(queryProvider);
+    this.gitManager = requireNonNull(gitManager);
+    this.matchReviewTarget = requireNonNull(matchReviewTarget);
+    this.targetResolver = requireNonNull(targetResolver);
+    this.projectConfig = requireNonNull(projectConfig);
+    this.cfg = requireNonNull(cfg);
+  }
+
+  @Override
+  protected void run() throws UnloggedFailure, Exception {
+    if (threads < 1) {
+      throw die("--threads must be at least 1");
+    }
+    // share the limit of has:selected instead of competing for its slots
+    int parallel = Math.min(threads, cfg.getSelectedMaxConcurrency());
+    String ref = branch != null ? RefNames.fullName(branch) : null;
+    Gson gson = OutputFormat.JSON_COMPACT.newGson();
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+        parallel,
+        new ThreadFactoryBuilder().setNameFormat("ReviewTarget-Verify-%d").setDaemon(true).build());
+    try {
+      for (Project.NameKey project : projects) {
+        List<Change> changes = new ArrayList<>();
+        List<ChangeData> found = includeClosed
+            ? queryProvider.get().byProject(project)
+            : queryProvider.get().byProjectOpen(project);
+        for (ChangeData cd : found) {
+          Change change = cd.change();
+          boolean wanted = ref != null
+              ? change.getDest().branch().equals(ref)
+              : projectConfig.forReviewBranch(change.getDest()) != null;
+          if (wanted) {
+            changes.add(change);
+          }
+        }
+        verify(project, changes, executor, gson);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void verify(
+      Project.NameKey project, List<Change> changes, ExecutorService executor, Gson gson)
+      throws UnloggedFailure, InterruptedException {
+    if (changes.isEmpty()) {
+      return;
+    }
+    try (Repository repo = gitManager.openRepository(project)) {
+      try (RevWalk rw = new RevWalk(repo)) {
+        targetResolver.prefetch(project, repo, rw, changes);
+      }
+
+      CompletionService<VerifyInfo> completion = new ExecutorCompletionService<>(executor);
+      for (Change change : changes) {
+        completion.submit(() -> toInfo(change, matchReviewTarget.verify(change, repo)));
+      }
+      // print the results as soon as they are done
+      for (int i = 0; i < changes.size(); i++) {
+        stdout.print(gson.toJson(completion.take().get()));
+        stdout.print('\n');
+        stdout.flush();
+      }
+    } catch (IOException e) {
+      throw die("cannot open repository " + project + ": " + e.getMessage());
+    } catch (ExecutionException e) {
+      throw die(e.getCause());
+    }
+  }
+
+  private static VerifyInfo toInfo(Change change, MatchReviewTarget.Result result) {
+    VerifyInfo info = new VerifyInfo();
+    info.project = change.getProject().get();
+    info.branch = change.getDest().branch();
+    info.change = change.getChangeId();
+    info.patchSet = change.currentPatchSetId().get();
+    info.result = result;
+    return info;
+  }
+}
@@ -0,0 +1,166 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.BranchNameKey;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.change.NotifyResolver;
+import com.google.gerrit.server.change.PatchSetInserter;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.google.gerrit.server.update.BatchUpdate;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CacheWarmerTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("product");
+
+  @Mock private Configuration cfg;
+  @Mock private WorkQueue workQueue;
+  @Mock private ProjectCache projectCache;
+  @Mock private InternalChangeQuery query;
+  @Mock private ProjectConfigCache projectConfig;
+  @Mock private GitRepositoryManager gitManager;
+  @Mock private ReviewTargetResolver targetResolver;
+  @Mock private UpdateUtil updateUtil;
+  @Mock private RebaseUtil rebaseUtil;
+  @Mock private VerificationNotes notes;
+
+  private CacheWarmer warmer;
+
+  @Before
+  public void setUp() {
+    warmer = new CacheWarmer(
+        cfg, workQueue, projectCache, () -> query, projectConfig, gitManager, targetResolver, updateUtil,
+        rebaseUtil, notes);
+  }
+
+  @Test
+  public void start_disabled() {
+    warmer.start();
+    verify(workQueue, never()).createQueue(anyInt(), anyString());
+  }
+
+  @Test
+  public void run_resolvesChangesOnReviewBranches() throws Exception {
+    ChangeData review = changeData(1, "review");
+    ChangeData other = changeData(2, "master");
+    BranchPair pair = new BranchPair("refs/heads/master", "refs/heads/review");
+    when(projectCache.all()).thenReturn(ImmutableSortedSet.of(PROJECT));
+    when(query.byProjectOpen(PROJECT)).thenReturn(List.of(review, other));
+    when(projectConfig.forReviewBranch(review.change().getDest())).thenReturn(pair);
+    when(gitManager.openRepository(PROJECT))
+        .thenReturn(new InMemoryRepository(new DfsRepositoryDescription("product")));
+
+    warmer.run();
+
+    verify(targetResolver).prefetch(any(), any(), eq(Set.of("refs/heads/master")));
+    verify(targetResolver).resolve(any(), any(), eq("refs/heads/master"));
+  }
+
+  @Test
+  public void run_recordsVerificationOfMatchingChange() throws Exception {
+    RevCommit review = setUpVerification(false);
+
+    verifyingWarmer().run();
+
+    verify(notes).record(eq(PROJECT), any(), eq(review), any());
+  }
+
+  @Test
+  public void run_skipsVerifiedChange() throws Exception {
+    setUpVerification(true);
+
+    verifyingWarmer().run();
+
+    verify(notes, never()).record(any(), any(), any(), any());
+  }
+
+  @Test
+  public void run_stopped() {
+    warmer.stop();
+    when(projectCache.all()).thenReturn(ImmutableSortedSet.of(PROJECT));
+
+    warmer.run();
+
+    verifyNoInteractions(query, targetResolver);
+  }
+
+  /**
+   * One open review change whose tree matches its footers.
+   */
+  private RevCommit setUpVerification(boolean verified) throws Exception {
+    InMemoryRepository repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    TestRepository<InMemoryRepository> testRepo = new TestRepository<>(repo);
+    RevCommit parent = testRepo.commit().add("a/x.c", "x1").add("a/y.h", "y1").create();
+    RevCommit target = testRepo.commit().add("a/x.c", "x2").add("a/y.h", "y2").create();
+    testRepo.update("refs/tags/v1", target);
+    RevCommit review = testRepo.commit().parent(parent).noFiles()
+        .message("Review\n\nReview-Target: v1\nReview-Files: *.c\n")
+        .add("a/x.c", "x2").add("a/y.h", "y1")
+        .create();
+
+    ChangeData cd = changeData(1, "review");
+    PatchSet.Id patchSet = PatchSet.id(cd.change().getId(), 1);
+    cd.change().setCurrentPatchSet(patchSet, "Review", "Review");
+    testRepo.update(patchSet.toRefName(), review);
+
+    when(projectCache.all()).thenReturn(ImmutableSortedSet.of(PROJECT));
+    when(query.byProjectOpen(PROJECT)).thenReturn(List.of(cd));
+    when(projectConfig.forReviewBranch(cd.change().getDest()))
+        .thenReturn(new BranchPair("refs/heads/master", "refs/heads/review"));
+    when(gitManager.openRepository(PROJECT)).thenReturn(repo);
+    when(cfg.getReviewTargetFooter()).thenReturn(Configuration.DEFAULT_REVIEW_TARGET_FOOTER);
+    when(cfg.getReviewFilesFooter()).thenReturn(Configuration.DEFAULT_REVIEW_FILES_FOOTER);
+    when(cfg.getVersionPrefix()).thenReturn("refs/tags/");
+    when(notes.isEnabled()).thenReturn(true);
+    when(notes.isVerified(any(), any())).thenReturn(verified);
+    return review;
+  }
+
+  private CacheWarmer verifyingWarmer() {
+    UpdateUtil realUpdateUtil = new UpdateUtil(
+        cfg, mock(PatchSetInserter.Factory.class), mock(BatchUpdate.Factory.class),
+        mock(NotifyResolver.class));
+    return new CacheWarmer(
+        cfg, workQueue, projectCache, () -> query, projectConfig, gitManager,
+        new ReviewTargetResolver(realUpdateUtil), realUpdateUtil, rebaseUtil, notes);
+  }
+
+  private static ChangeData changeData(int id, String branch) {
+    Change change = new Change(
+        Change.key("I" + id), Change.id(id), Account.id(1000),
+        BranchNameKey.create(PROJECT, branch), Instant.EPOCH);
+    ChangeData cd = mock(ChangeData.class);
+    when(cd.change()).thenReturn(change);
+    return cd;
+  }
+}
@@ -0,0 +1,110 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.extensions.restapi.ResourceConflictException;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.testing.GerritJUnit.assertThrows;
+
+public class FollowCoalescerTest {
+  private final FollowCoalescer coalescer = new FollowCoalescer();
+  private final PatchSet.Id patchSet = PatchSet.id(Change.id(1), 1);
+
+  @Test
+  public void concurrentIdenticalRequests_runOnce() throws Exception {
+    FollowCoalescer.Key key = new FollowCoalescer.Key(patchSet, true, "v1", "*");
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first = executor.submit(() -> coalescer.run(key, () -> {
+        calls.incrementAndGet();
+        started.countDown();
+        Uninterruptibles.awaitUninterruptibly(release, 10, TimeUnit.SECONDS);
+        return "result";
+      }));
+      started.await(10, TimeUnit.SECONDS);
+      Future<String> second = executor.submit(() -> coalescer.run(key, () -> {
+        calls.incrementAndGet();
+        return "other";
+      }));
+      // give the second request the chance to join the running one
+      Thread.sleep(100);
+      release.countDown();
+
+      assertThat(first.get()).isEqualTo("result");
+      assertThat(second.get()).isEqualTo("result");
+      assertThat(calls.get()).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void error_propagatedToWaiters() throws Exception {
+    FollowCoalescer.Key key = new FollowCoalescer.Key(patchSet, false, "v1", "*");
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first = executor.submit(() -> coalescer.run(key, () -> {
+        started.countDown();
+        Uninterruptibles.awaitUninterruptibly(release, 10, TimeUnit.SECONDS);
+        throw new StackOverflowError();
+      }));
+      started.await(10, TimeUnit.SECONDS);
+      Future<String> second = executor.submit(() -> coalescer.run(key, () -> "other"));
+      // give the second request the chance to join the running one
+      Thread.sleep(100);
+      release.countDown();
+
+      ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS));
+      assertThat(e).hasCauseThat().isInstanceOf(StackOverflowError.class);
+      e = assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+      assertThat(e).hasCauseThat().isInstanceOf(StackOverflowError.class);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void sequentialRequests_runEachTime() throws Exception {
+    FollowCoalescer.Key key = new FollowCoalescer.Key(patchSet, false, "v1", "*");
+    AtomicInteger calls = new AtomicInteger();
+    coalescer.run(key, calls::incrementAndGet);
+    coalescer.run(key, calls::incrementAndGet);
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void differentInput_notCoalesced() {
+    assertThat(new FollowCoalescer.Key(patchSet, true, "v1", "*"))
+        .isNotEqualTo(new FollowCoalescer.Key(patchSet, true, "v2", "*"));
+    assertThat(new FollowCoalescer.Key(patchSet, true, "v1", "*"))
+        .isNotEqualTo(new FollowCoalescer.Key(patchSet, false, "v1", "*"));
+    assertThat(new FollowCoalescer.Key(patchSet, true, "v1", "*"))
+        .isNotEqualTo(new FollowCoalescer.Key(PatchSet.id(Change.id(1), 2), true, "v1", "*"));
+  }
+
+  @Test
+  public void exception_propagated() {
+    FollowCoalescer.Key key = new FollowCoalescer.Key(patchSet, true, null, null);
+    assertThrows(ResourceConflictException.class, () -> coalescer.run(key, () -> {
+      throw new ResourceConflictException("conflict");
+    }));
+  }
+}
@@ -2,14 +2,18 @@ package com.googlesource.gerrit.plugins.reviewtarget;
 
 import com.google.gerrit.entities.BranchNameKey;
 import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.restapi.AuthException;
 import com.google.gerrit.extensions.restapi.PreconditionFailedException;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.change.ChangeResource;
+import com.google.gerrit.server.config.PluginConfig;
+import com.google.gerrit.server.config.PluginConfigFactory;
 import com.google.gerrit.server.permissions.ChangePermission;
 import com.google.gerrit.server.permissions.PermissionBackend;
 import com.google.gerrit.server.query.change.ChangeData;
 import com.google.inject.Provider;
+import org.eclipse.jgit.lib.Config;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -17,19 +21,27 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.time.Instant;
+import java.util.List;
 
 import static com.google.gerrit.testing.GerritJUnit.assertThrows;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class FollowPreconditionsTest {
+  private static final String PLUGIN = "reviewtarget";
+
+  private final Config projectConfig = new Config();
 
   private Change change;
   @Mock private ChangeData changeData;
   @Mock private ChangeResource rsrc;
   @Mock private Configuration cfg;
+  @Mock private PluginConfigFactory pluginConfigFactory;
   @Mock private CurrentUser currentUser;
   @Mock private Provider<CurrentUser> userProvider;
   @Mock private PermissionBackend permissionBackend;
@@ -44,10 +56,14 @@ public class FollowPreconditionsTest {
     when(rsrc.getChangeData()).thenReturn(changeData);
     when(userPermission.change(changeData)).thenReturn(forChange);
     when(userProvider.get()).thenReturn(currentUser);
+    lenient().when(cfg.getFollowBranch()).thenReturn("refs/heads/master");
+    lenient().when(pluginConfigFactory.getFromProjectConfigWithInheritance(any(Project.NameKey.class), eq(PLUGIN)))
+        .thenReturn(PluginConfig.createFromGerritConfig(PLUGIN, projectConfig));
   }
 
   private FollowPreconditions preconditions() {
-    return new FollowPreconditions(cfg, userProvider, permissionBackend);
+    ProjectConfigCache projectConfigCache = new ProjectConfigCache(pluginConfigFactory, PLUGIN, cfg);
+    return new FollowPreconditions(projectConfigCache, userProvider, permissionBackend);
   }
 
   @Test
@@ -78,6 +94,22 @@ public class FollowPreconditionsTest {
     assertTrue(preconditions().onReviewBranch(change));
   }
 
+  @Test
+  public void onReviewBranch_projectPairs() {
+    when(cfg.getReviewBranch()).thenReturn("refs/heads/review");
+    projectConfig.setStringList("plugin", PLUGIN, "follow", List.of(
+        "refs/heads/main:refs/heads/review-a",
+        "refs/heads/release:refs/heads/review-b/*"));
+
+    whenOnBranch("review-b/1");
+    assertTrue(preconditions().onReviewBranch(change));
+    whenOnBranch("review-a");
+    assertTrue(preconditions().onReviewBranch(change));
+    // the global review branch is not used any more
+    whenOnBranch("review");
+    assertFalse(preconditions().onReviewBranch(change));
+  }
+
   @Test
   public void assertCanChangeReviewTarget_passes() throws PreconditionFailedException {
     whenOnBranch("review");
@@ -128,6 +160,24 @@ public class FollowPreconditionsTest {
     );
   }
 
+  @Test
+  public void canFollow_passes() {
+    whenOnBranch("review");
+    when(changeData.change()).thenReturn(change);
+    when(forChange.testOrFalse(ChangePermission.ADD_PATCH_SET)).thenReturn(true);
+    when(cfg.getReviewBranch()).thenReturn("refs/heads/review");
+    assertTrue(preconditions().canFollow(changeData));
+  }
+
+  @Test
+  public void canFollow_rejectsMerged() {
+    whenOnBranch("review");
+    whenChangeMerged();
+    when(changeData.change()).thenReturn(change);
+    when(cfg.getReviewBranch()).thenReturn("refs/heads/review");
+    assertFalse(preconditions().canFollow(changeData));
+  }
+
   private void whenOnBranch(String branchName) {
     change.setDest(BranchNameKey.create("repo", branchName));
   }
@@ -0,0 +1,73 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LineStatsTest {
+  @Mock private Configuration cfg;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private InMemoryRepository repo;
+  private TestRepository<InMemoryRepository> testRepo;
+  private LineStats lineStats;
+  private final Map<String, ObjectId> oldBlobs = new HashMap<>();
+  private final Map<String, ObjectId> newBlobs = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    testRepo = new TestRepository<>(repo);
+    lineStats = new LineStats(cfg, new ParallelEvaluator(executor));
+
+    oldBlobs.put("a.c", testRepo.blob("one\ntwo\nthree\n"));
+    newBlobs.put("a.c", testRepo.blob("one\n2\nthree\nfour\n"));
+    oldBlobs.put("new.c", ObjectId.zeroId());
+    newBlobs.put("new.c", testRepo.blob("x\ny\n"));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void compute_insertedAndDeletedLines() throws Exception {
+    when(cfg.getStatsMaxBytes()).thenReturn(Configuration.DEFAULT_STATS_MAX_BYTES);
+    Map<String, LineStats.FileStats> stats = lineStats.compute(repo, oldBlobs, newBlobs);
+
+    assertThat(stats.keySet()).containsExactly("a.c", "new.c");
+    assertThat(stats.get("a.c").linesInserted).isEqualTo(2);
+    assertThat(stats.get("a.c").linesDeleted).isEqualTo(1);
+    assertThat(stats.get("new.c").linesInserted).isEqualTo(2);
+    assertThat(stats.get("new.c").linesDeleted).isEqualTo(0);
+  }
+
+  @Test
+  public void compute_skippedBeyondBudget() throws Exception {
+    // enough for a.c, which is checked first because it sorts first
+    when(cfg.getStatsMaxBytes()).thenReturn(34L);
+    Map<String, LineStats.FileStats> stats =
+        lineStats.compute(repo, new TreeMap<>(oldBlobs), newBlobs);
+
+    assertThat(stats.get("a.c").linesInserted).isEqualTo(2);
+    assertThat(stats.get("new.c").skipped).isTrue();
+  }
+}
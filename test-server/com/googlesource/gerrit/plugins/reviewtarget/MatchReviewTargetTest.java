@@ -0,0 +1,123 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.BranchNameKey;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.change.NotifyResolver;
+import com.google.gerrit.server.change.PatchSetInserter;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.update.BatchUpdate;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MatchReviewTargetTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("product");
+
+  @Mock private Configuration cfg;
+  @Mock private PatchSetInserter.Factory patchSetInserterFactory;
+  @Mock private BatchUpdate.Factory updateFactory;
+  @Mock private NotifyResolver notifyResolver;
+  @Mock private RebaseUtil rebaseUtil;
+  @Mock private GitRepositoryManager gitManager;
+  @Mock private VerificationNotes notes;
+
+  private InMemoryRepository repo;
+  private TestRepository<InMemoryRepository> testRepo;
+  private RevCommit parent;
+  private MatchReviewTarget matchReviewTarget;
+
+  @Before
+  public void setUp() throws Exception {
+    when(cfg.getReviewTargetFooter()).thenReturn(Configuration.DEFAULT_REVIEW_TARGET_FOOTER);
+    when(cfg.getReviewFilesFooter()).thenReturn(Configuration.DEFAULT_REVIEW_FILES_FOOTER);
+    when(cfg.getSelectedMaxConcurrency()).thenReturn(2);
+    lenient().when(cfg.getSelectedTimeoutMs()).thenReturn(60_000L);
+    UpdateUtil updateUtil = new UpdateUtil(cfg, patchSetInserterFactory, updateFactory, notifyResolver);
+
+    repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    testRepo = new TestRepository<>(repo);
+    when(gitManager.openRepository(PROJECT)).thenAnswer(invocation -> {
+      repo.incrementOpen();
+      return repo;
+    });
+    parent = testRepo.commit().add("a/x.c", "x1").add("a/y.h", "y1").create();
+    RevCommit target = testRepo.commit().add("a/x.c", "x2").add("a/y.h", "y2").create();
+    testRepo.update("refs/tags/v1", target);
+
+    matchReviewTarget = new MatchReviewTarget(
+        gitManager, updateUtil, rebaseUtil, cfg, notes,
+        new ReviewTargetResolver(updateUtil), new DisabledMetricMaker());
+  }
+
+  @Test
+  public void queryChecks_shareRepositoryOfProject() throws Exception {
+    Change selected = change(1, "x2");
+    Change edited = change(2, "edited");
+
+    try (MatchReviewTarget.QueryChecks checks = matchReviewTarget.newQueryChecks()) {
+      assertThat(checks.checkReviewTarget(selected)).isTrue();
+      assertThat(checks.checkReviewTarget(edited)).isFalse();
+      assertThat(checks.checkReviewTarget(selected)).isTrue();
+    }
+    verify(gitManager, times(1)).openRepository(PROJECT);
+  }
+
+  @Test
+  public void queryChecks_closedChecksEachChange() throws Exception {
+    Change selected = change(1, "x2");
+
+    MatchReviewTarget.QueryChecks checks = matchReviewTarget.newQueryChecks();
+    checks.close();
+    assertThat(checks.checkReviewTarget(selected)).isTrue();
+    assertThat(checks.checkReviewTarget(selected)).isTrue();
+    verify(gitManager, times(2)).openRepository(PROJECT);
+  }
+
+  @Test
+  public void queryChecks_shareOneTimeBudget() throws Exception {
+    when(cfg.getSelectedTimeoutMs()).thenReturn(1_000L);
+    Change first = change(1, "x2");
+    Change second = change(2, "x2");
+
+    try (MatchReviewTarget.QueryChecks checks = matchReviewTarget.newQueryChecks()) {
+      assertThat(checks.checkReviewTarget(first)).isTrue();
+      Thread.sleep(1_100);
+      // each change alone would be in time, but the query has used up its budget
+      assertThat(checks.checkReviewTarget(second)).isFalse();
+    }
+  }
+
+  private Change change(int id, String content) throws Exception {
+    RevCommit review = testRepo.commit().parent(parent).noFiles()
+        .message("Review\n\nReview-Target: v1\nReview-Files: *.c\n")
+        .add("a/x.c", content).add("a/y.h", "y1")
+        .create();
+    Change change = new Change(
+        Change.key("I" + id), Change.id(id), Account.id(1),
+        BranchNameKey.create(PROJECT, "review"), Instant.now());
+    PatchSet.Id patchSet = PatchSet.id(change.getId(), 1);
+    change.setCurrentPatchSet(patchSet, "Review", "Review");
+    testRepo.update(patchSet.toRefName(), review);
+    return change;
+  }
+}
@@ -0,0 +1,62 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ParallelEvaluatorTest {
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final ParallelEvaluator evaluator = new ParallelEvaluator(executor);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void results_inItemOrder() {
+    List<Integer> items = ImmutableList.of(5, 1, 4, 2, 3, 6);
+    List<Boolean> results = evaluator.evaluate(items, i -> {
+      // the checks finish in the order of their values, not of the list
+      Uninterruptibles.sleepUninterruptibly(10 * i, TimeUnit.MILLISECONDS);
+      return i % 2 == 0;
+    });
+    assertThat(results).containsExactly(false, false, true, true, false, true).inOrder();
+  }
+
+  @Test
+  public void checks_runConcurrently() {
+    CountDownLatch allStarted = new CountDownLatch(4);
+    List<Boolean> results = evaluator.evaluate(ImmutableList.of(1, 2, 3, 4), i -> {
+      allStarted.countDown();
+      // only succeeds if all four checks are running at the same time
+      return Uninterruptibles.awaitUninterruptibly(allStarted, 10, TimeUnit.SECONDS);
+    });
+    assertThat(results).containsExactly(true, true, true, true);
+  }
+
+  @Test
+  public void failedCheck_isFalse() {
+    List<Boolean> results = evaluator.evaluate(ImmutableList.of("a", "b"), s -> {
+      if (s.equals("a")) {
+        throw new IllegalStateException("broken");
+      }
+      return true;
+    });
+    assertThat(results).containsExactly(false, true).inOrder();
+  }
+
+  @Test
+  public void emptyPage() {
+    assertThat(evaluator.evaluate(ImmutableList.<String>of(), s -> true)).isEmpty();
+  }
+}
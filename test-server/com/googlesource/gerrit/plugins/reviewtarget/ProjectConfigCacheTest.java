@@ -0,0 +1,83 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.entities.BranchNameKey;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.events.GitReferenceUpdatedListener;
+import com.google.gerrit.server.config.PluginConfig;
+import com.google.gerrit.server.config.PluginConfigFactory;
+import org.eclipse.jgit.lib.Config;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProjectConfigCacheTest {
+  private static final String PLUGIN = "reviewtarget";
+  private static final Project.NameKey PROJECT = Project.nameKey("product");
+
+  private final Config projectConfig = new Config();
+  @Mock private Configuration cfg;
+  @Mock private PluginConfigFactory pluginConfigFactory;
+  private ProjectConfigCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    when(cfg.getFollowBranch()).thenReturn("refs/heads/master");
+    when(cfg.getReviewBranch()).thenReturn("refs/heads/review");
+    when(pluginConfigFactory.getFromProjectConfigWithInheritance(PROJECT, PLUGIN))
+        .thenAnswer(i -> PluginConfig.createFromGerritConfig(PLUGIN, projectConfig));
+    cache = new ProjectConfigCache(pluginConfigFactory, PLUGIN, cfg);
+  }
+
+  @Test
+  public void noPairs_useGlobalBranches() {
+    BranchPair pair = cache.forReviewBranch(BranchNameKey.create(PROJECT, "review"));
+    assertThat(pair.getFollowBranch()).isEqualTo("refs/heads/master");
+  }
+
+  @Test
+  public void pairs_firstMatchWins_invalidSkipped() {
+    projectConfig.setStringList("plugin", PLUGIN, "follow", List.of(
+        "refs/heads/review-only",
+        "refs/heads/v2:refs/heads/review/v2",
+        "refs/heads/main:refs/heads/review"));
+
+    assertThat(cache.forReviewBranch(BranchNameKey.create(PROJECT, "review/v2")).getFollowBranch())
+        .isEqualTo("refs/heads/v2");
+    assertThat(cache.forReviewBranch(BranchNameKey.create(PROJECT, "review/v3")).getFollowBranch())
+        .isEqualTo("refs/heads/main");
+    assertThat(cache.forReviewBranch(BranchNameKey.create(PROJECT, "master"))).isNull();
+  }
+
+  @Test
+  public void parsedOnce_untilProjectConfigChanges() throws Exception {
+    cache.getBranchPairs(PROJECT);
+    cache.getBranchPairs(PROJECT);
+    verify(pluginConfigFactory, times(1)).getFromProjectConfigWithInheritance(PROJECT, PLUGIN);
+
+    cache.onGitReferenceUpdated(event("refs/heads/master"));
+    cache.getBranchPairs(PROJECT);
+    verify(pluginConfigFactory, times(1)).getFromProjectConfigWithInheritance(PROJECT, PLUGIN);
+
+    cache.onGitReferenceUpdated(event(RefNames.REFS_CONFIG));
+    cache.getBranchPairs(PROJECT);
+    verify(pluginConfigFactory, times(2)).getFromProjectConfigWithInheritance(PROJECT, PLUGIN);
+  }
+
+  private static GitReferenceUpdatedListener.Event event(String refName) {
+    GitReferenceUpdatedListener.Event event = mock(GitReferenceUpdatedListener.Event.class);
+    when(event.getRefName()).thenReturn(refName);
+    return event;
+  }
+}
@@ -2,6 +2,9 @@ package com.googlesource.gerrit.plugins.reviewtarget;
 
 import org.junit.Test;
 
+import java.util.Optional;
+import java.util.Set;
+
 import static com.google.common.truth.Truth.assertThat;
 
 public class ReviewFilterTest {
@@ -36,4 +39,23 @@ public class ReviewFilterTest {
     assertThat(reviewFilter.isPathToBeReviewed("x.b", false))
         .isEqualTo(ReviewFilter.Selected.NEGATIVE);
   }
+
+  @Test
+  public void getLiteralPaths() {
+    assertThat(new ReviewFilter("/src/\n/doc/index.md\n!/src/gen").getLiteralPaths())
+        .isEqualTo(Optional.of(Set.of("src", "doc/index.md")));
+    assertThat(new ReviewFilter("src").getLiteralPaths().isPresent()).isFalse();
+    assertThat(new ReviewFilter("/src/*.c").getLiteralPaths().isPresent()).isFalse();
+    assertThat(new ReviewFilter("*").getLiteralPaths().isPresent()).isFalse();
+  }
+
+  @Test
+  public void mayMatchBelow() {
+    var literal = new ReviewFilter("/src/common/\n/doc/index.md");
+    assertThat(literal.mayMatchBelow("src")).isTrue();
+    assertThat(literal.mayMatchBelow("doc")).isTrue();
+    assertThat(literal.mayMatchBelow("lib")).isFalse();
+    assertThat(literal.mayMatchBelow("src/other")).isFalse();
+    assertThat(new ReviewFilter("*.c").mayMatchBelow("lib")).isTrue();
+  }
 }
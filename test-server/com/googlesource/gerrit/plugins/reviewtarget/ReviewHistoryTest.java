@@ -0,0 +1,98 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.server.change.NotifyResolver;
+import com.google.gerrit.server.change.PatchSetInserter;
+import com.google.gerrit.server.update.BatchUpdate;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReviewHistoryTest {
+  @Mock private Configuration cfg;
+  @Mock private PatchSetInserter.Factory patchSetInserterFactory;
+  @Mock private BatchUpdate.Factory updateFactory;
+  @Mock private NotifyResolver notifyResolver;
+
+  private InMemoryRepository repo;
+  private TestRepository<InMemoryRepository> testRepo;
+  private UpdateUtil updateUtil;
+
+  @Before
+  public void setUp() throws Exception {
+    when(cfg.getReviewTargetFooter()).thenReturn(Configuration.DEFAULT_REVIEW_TARGET_FOOTER);
+    when(cfg.getReviewFilesFooter()).thenReturn(Configuration.DEFAULT_REVIEW_FILES_FOOTER);
+    updateUtil = new UpdateUtil(cfg, patchSetInserterFactory, updateFactory, notifyResolver);
+    repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    testRepo = new TestRepository<>(repo);
+  }
+
+  @Test
+  public void walk_filesWithTheirTarget() throws Exception {
+    RevCommit base = testRepo.commit().message("import")
+        .add("a/x.c", "x1").add("a/y.h", "y1").add("b/z.c", "z1").create();
+    RevCommit first = testRepo.commit().parent(base)
+        .message("Review\n\nReview-Target: v1\nReview-Files: *.c\nReview-Target: v2\nReview-Files: /b/")
+        .add("a/x.c", "x2").add("a/y.h", "y2").add("b/z.c", "z2").create();
+    RevCommit plain = testRepo.commit().parent(first).message("no footers")
+        .add("a/x.c", "x2").add("a/y.h", "y3").add("b/z.c", "z2").create();
+    RevCommit second = testRepo.commit().parent(plain).noFiles()
+        .message("Review\n\nReview-Target: v3\nReview-Files: /a/x.c")
+        .add("a/x.c", "x3").add("b/z.c", "z2").create();
+
+    List<String> records = walk(second, null);
+    assertThat(records).containsExactly(
+        first.name() + " a/x.c v1",
+        first.name() + " a/y.h null",
+        first.name() + " b/z.c v2",
+        second.name() + " a/x.c v3",
+        second.name() + " a/y.h null").inOrder();
+
+    // continue from a checkpoint
+    assertThat(walk(second, first)).containsExactly(
+        second.name() + " a/x.c v3",
+        second.name() + " a/y.h null").inOrder();
+  }
+
+  @Test
+  public void walk_directoryKeepsItsTarget() throws Exception {
+    RevCommit base = testRepo.commit().message("import")
+        .add("src/main.c", "s1").add("src/util.c", "u1").add("config/app.conf", "c1").create();
+    RevCommit review = testRepo.commit().parent(base)
+        .message("Review\n\nReview-Target: v1\nReview-Files: src\n"
+            + "Review-Target: v2\nReview-Files: config\n"
+            + "Review-Target: v3\nReview-Files: /src/util.c")
+        .add("src/main.c", "s2").add("src/util.c", "u3").add("config/app.conf", "c2").create();
+
+    assertThat(walk(review, base)).containsExactly(
+        review.name() + " config/app.conf v2",
+        review.name() + " src/main.c v1",
+        review.name() + " src/util.c v3").inOrder();
+  }
+
+  private List<String> walk(RevCommit tip, ObjectId since) throws Exception {
+    List<String> records = new ArrayList<>();
+    try (RevWalk rw = new RevWalk(repo)) {
+      new ReviewHistory(rw, updateUtil).walk(tip, since, (commit, files) -> {
+        for (ReviewHistory.FileEntry file : files) {
+          records.add(commit.name() + " " + file.getPath() + " " + file.getReviewTarget());
+        }
+      });
+    }
+    return records;
+  }
+}
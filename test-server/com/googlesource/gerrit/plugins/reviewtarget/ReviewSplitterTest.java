@@ -0,0 +1,76 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ReviewSplitterTest {
+  private InMemoryRepository repo;
+  private RevCommit from;
+  private RevCommit to;
+
+  @Before
+  public void setUp() throws Exception {
+    repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    TestRepository<InMemoryRepository> testRepo = new TestRepository<>(repo);
+    from = testRepo.commit()
+        .add("a/x.c", "x").add("a/y.h", "y").add("b/z.c", "z").add("c/same.txt", "same")
+        .create();
+    to = testRepo.commit()
+        .add("a/x.c", "xxxxxxxx").add("a/y.h", "yyyy")
+        .add("b/z.c", "zzzzzzzz").add("b/sub/new.c", "nnnn")
+        .add("c/same.txt", "same")
+        .create();
+  }
+
+  @Test
+  public void split_balancedByDirectory() throws Exception {
+    ReviewSplitter splitter = scan(List.of());
+    assertThat(splitter.getFiles()).isEqualTo(4);
+    assertThat(splitter.getBytes()).isEqualTo(24);
+
+    List<ReviewSplitter.Part> parts = splitter.split(2, ReviewSplitter.Weight.BYTES);
+    assertThat(parts).hasSize(2);
+    assertThat(parts.get(0).getReviewFiles()).isEqualTo("/a/");
+    assertThat(parts.get(0).getBytes()).isEqualTo(12);
+    assertThat(parts.get(1).getReviewFiles()).isEqualTo("/b/");
+    assertThat(parts.get(1).getFiles()).isEqualTo(2);
+  }
+
+  @Test
+  public void split_largeDirectoryIntoEntries() throws Exception {
+    List<ReviewSplitter.Part> parts = scan(List.of()).split(3, ReviewSplitter.Weight.BYTES);
+    assertThat(parts).hasSize(3);
+    assertThat(parts.get(0).getReviewFiles()).isEqualTo("/a/x.c");
+    assertThat(parts.get(1).getReviewFiles()).isEqualTo("/b/z.c");
+    assertThat(parts.get(2).getReviewFiles()).isEqualTo("/a/y.h\n/b/sub/");
+  }
+
+  @Test
+  public void candidates_scoredInSameWalk() throws Exception {
+    ReviewSplitter splitter = scan(List.of(
+        new ReviewFilter("*.c"), new ReviewFilter("/b/\n!*.c"), new ReviewFilter("")));
+    List<ReviewSplitter.Part> sizes = splitter.getCandidateSizes();
+    assertThat(sizes.get(0).getFiles()).isEqualTo(3);
+    assertThat(sizes.get(0).getBytes()).isEqualTo(20);
+    // a selected directory is taken as a whole
+    assertThat(sizes.get(1).getFiles()).isEqualTo(2);
+    assertThat(sizes.get(2).getFiles()).isEqualTo(4);
+  }
+
+  private ReviewSplitter scan(List<ReviewFilter> candidates) throws Exception {
+    try (RevWalk rw = new RevWalk(repo)) {
+      ReviewSplitter splitter = new ReviewSplitter(rw.getObjectReader(), candidates);
+      splitter.scan(rw.parseTree(from.getTree()), rw.parseTree(to.getTree()));
+      return splitter;
+    }
+  }
+}
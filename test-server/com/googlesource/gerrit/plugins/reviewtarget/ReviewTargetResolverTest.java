@@ -0,0 +1,86 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.events.GitReferenceUpdatedListener;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReviewTargetResolverTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("product");
+
+  @Mock private UpdateUtil updateUtil;
+
+  private InMemoryRepository repo;
+  private TestRepository<InMemoryRepository> testRepo;
+  private ReviewTargetResolver resolver;
+
+  @Before
+  public void setUp() throws Exception {
+    repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    testRepo = new TestRepository<>(repo);
+    resolver = new ReviewTargetResolver(updateUtil);
+  }
+
+  @Test
+  public void resolve_peelsAnnotatedTags() throws Exception {
+    RevCommit commit = testRepo.commit().message("release").create();
+    RevTag tag = testRepo.tag("v1", commit);
+    testRepo.update("refs/tags/v1", tag);
+    testRepo.update("refs/heads/main", commit);
+
+    assertThat(resolver.resolve(PROJECT, repo, "v1")).isEqualTo(commit);
+    assertThat(resolver.resolve(PROJECT, repo, "refs/tags/v1")).isEqualTo(commit);
+    assertThat(resolver.resolve(PROJECT, repo, "main")).isEqualTo(commit);
+  }
+
+  @Test
+  public void resolve_missRememberedUntilRefUpdated() throws Exception {
+    assertThat(resolver.resolve(PROJECT, repo, "v2")).isNull();
+
+    RevCommit commit = testRepo.commit().message("release").create();
+    testRepo.update("refs/tags/v2", commit);
+    assertThat(resolver.resolve(PROJECT, repo, "v2")).isNull();
+
+    resolver.onGitReferenceUpdated(event("refs/tags/v2"));
+    assertThat(resolver.resolve(PROJECT, repo, "v2")).isEqualTo(commit);
+  }
+
+  @Test
+  public void prefetch_resolvesAllNames() throws Exception {
+    RevCommit v1 = testRepo.commit().message("v1").create();
+    RevCommit v2 = testRepo.commit().message("v2").create();
+    testRepo.update("refs/tags/v1", v1);
+    testRepo.update("refs/heads/v2", v2);
+
+    resolver.prefetch(PROJECT, repo, List.of("v1", "v2", "v3"));
+    // later ref changes without an event are not seen, so the lookup came from the prefetch
+    testRepo.delete("refs/tags/v1");
+    testRepo.update("refs/tags/v3", v1);
+
+    assertThat(resolver.resolve(PROJECT, repo, "v1")).isEqualTo(v1);
+    assertThat(resolver.resolve(PROJECT, repo, "v2")).isEqualTo(v2);
+    assertThat(resolver.resolve(PROJECT, repo, "v3")).isNull();
+  }
+
+  private static GitReferenceUpdatedListener.Event event(String refName) {
+    GitReferenceUpdatedListener.Event event = mock(GitReferenceUpdatedListener.Event.class);
+    when(event.getProjectName()).thenReturn(PROJECT.get());
+    when(event.getRefName()).thenReturn(refName);
+    return event;
+  }
+}
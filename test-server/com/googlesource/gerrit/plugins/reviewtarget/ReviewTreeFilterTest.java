@@ -0,0 +1,45 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ReviewTreeFilterTest {
+  @Test
+  public void revWalk_onlyCommitsTouchingReviewFiles() throws Exception {
+    InMemoryRepository repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    TestRepository<InMemoryRepository> testRepo = new TestRepository<>(repo);
+    RevCommit base = testRepo.commit().add("src/a.c", "a").add("doc/a.md", "a").create();
+    RevCommit src = testRepo.commit().parent(base)
+        .add("src/a.c", "b").add("doc/a.md", "a").create();
+    RevCommit doc = testRepo.commit().parent(src)
+        .add("src/a.c", "b").add("doc/a.md", "b").create();
+    RevCommit header = testRepo.commit().parent(doc)
+        .add("src/a.c", "b").add("src/a.h", "b").add("doc/a.md", "b").create();
+
+    assertThat(walk(repo, base, header, "*.c")).containsExactly(src);
+    assertThat(walk(repo, base, header, "/doc/")).containsExactly(doc);
+    assertThat(walk(repo, base, header, "*")).containsExactly(header, doc, src).inOrder();
+  }
+
+  private static List<RevCommit> walk(
+      InMemoryRepository repo, RevCommit from, RevCommit to, String reviewFiles) throws Exception {
+    List<RevCommit> commits = new ArrayList<>();
+    try (RevWalk rw = new RevWalk(repo)) {
+      rw.setTreeFilter(new ReviewTreeFilter(new ReviewFilter(reviewFiles)));
+      rw.setRewriteParents(false);
+      rw.markStart(rw.parseCommit(to));
+      rw.markUninteresting(rw.parseCommit(from));
+      rw.forEach(commits::add);
+    }
+    return commits;
+  }
+}
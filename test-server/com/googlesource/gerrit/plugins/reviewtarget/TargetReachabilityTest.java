@@ -0,0 +1,76 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.server.change.NotifyResolver;
+import com.google.gerrit.server.change.PatchSetInserter;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.update.BatchUpdate;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TargetReachabilityTest {
+  private final TargetReachability reachability = new TargetReachability();
+  private InMemoryRepository repo;
+  private TestRepository<InMemoryRepository> testRepo;
+  private RevCommit base;
+  private RevCommit release;
+  private RevCommit tip;
+  private RevCommit side;
+
+  @Before
+  public void setUp() throws Exception {
+    repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    testRepo = new TestRepository<>(repo);
+    base = testRepo.commit().message("base").create();
+    release = testRepo.commit().parent(base).message("release").create();
+    tip = testRepo.commit().parent(release).message("tip").create();
+    side = testRepo.commit().parent(base).message("side").create();
+  }
+
+  @Test
+  public void ancestor_isReachable() throws Exception {
+    try (ObjectReader reader = repo.newObjectReader()) {
+      assertThat(reachability.isReachable(reader, release, tip)).isTrue();
+      assertThat(reachability.isReachable(reader, base, tip)).isTrue();
+      assertThat(reachability.isReachable(reader, tip, tip)).isTrue();
+    }
+  }
+
+  @Test
+  public void otherHistory_isNotReachable() throws Exception {
+    try (ObjectReader reader = repo.newObjectReader()) {
+      assertThat(reachability.isReachable(reader, side, tip)).isFalse();
+      assertThat(reachability.isReachable(reader, tip, release)).isFalse();
+    }
+  }
+
+  @Test
+  public void findUnreachableTarget_checksAllGroups() throws Exception {
+    Configuration cfg = mock(Configuration.class);
+    when(cfg.getReviewTargetFooter()).thenReturn(Configuration.DEFAULT_REVIEW_TARGET_FOOTER);
+    when(cfg.getReviewFilesFooter()).thenReturn(Configuration.DEFAULT_REVIEW_FILES_FOOTER);
+    UpdateUtil updateUtil = new UpdateUtil(cfg, mock(PatchSetInserter.Factory.class),
+        mock(BatchUpdate.Factory.class), mock(NotifyResolver.class));
+    testRepo.update("refs/heads/follow", tip);
+    testRepo.update("refs/tags/release", release);
+    testRepo.update("refs/tags/side", side);
+    RevCommit review = testRepo.commit().parent(base)
+        .message("Review\n\nReview-Target: refs/tags/release\nReview-Files: a\n"
+            + "Review-Target: refs/tags/side\nReview-Files: b\n")
+        .create();
+
+    try (UpdateTree update = new UpdateTree(repo, updateUtil, mock(RebaseUtil.class))) {
+      update.useCommit(update.getRevWalk().parseCommit(review));
+      update.useFollowBranch("refs/heads/follow");
+      assertThat(reachability.findUnreachableTarget(update)).isEqualTo("refs/tags/side");
+    }
+  }
+}
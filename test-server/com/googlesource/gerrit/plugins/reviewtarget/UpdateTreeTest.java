@@ -0,0 +1,226 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.server.change.NotifyResolver;
+import com.google.gerrit.server.change.PatchSetInserter;
+import com.google.gerrit.server.change.RebaseUtil;
+import com.google.gerrit.server.update.BatchUpdate;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UpdateTreeTest {
+  @Mock private Configuration cfg;
+  @Mock private PatchSetInserter.Factory patchSetInserterFactory;
+  @Mock private BatchUpdate.Factory updateFactory;
+  @Mock private NotifyResolver notifyResolver;
+  @Mock private RebaseUtil rebaseUtil;
+
+  private InMemoryRepository repo;
+  private TestRepository<InMemoryRepository> testRepo;
+  private UpdateUtil updateUtil;
+  private RevCommit parent;
+  private RevCommit target;
+
+  @Before
+  public void setUp() throws Exception {
+    when(cfg.getReviewTargetFooter()).thenReturn(Configuration.DEFAULT_REVIEW_TARGET_FOOTER);
+    when(cfg.getReviewFilesFooter()).thenReturn(Configuration.DEFAULT_REVIEW_FILES_FOOTER);
+    updateUtil = new UpdateUtil(cfg, patchSetInserterFactory, updateFactory, notifyResolver);
+
+    repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    testRepo = new TestRepository<>(repo);
+    parent = testRepo.commit()
+        .add("a/x.c", "x1").add("a/y.h", "y1").add("b/z.c", "z1").add("c/w.txt", "w1")
+        .create();
+    target = testRepo.commit()
+        .add("a/x.c", "x2").add("a/y.h", "y2").add("b/z.c", "z2").add("c/w.txt", "w1")
+        .create();
+    testRepo.update("refs/tags/v1", target);
+  }
+
+  @Test
+  public void findMismatchedPaths_matchingCommit() throws Exception {
+    RevCommit review = review("Review-Files: *.c",
+        "a/x.c", "x2", "a/y.h", "y1", "b/z.c", "z2", "c/w.txt", "w1");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(10)).isEmpty();
+      update.rewritePaths();
+      assertThat(update.hasCurrentPaths()).isTrue();
+    }
+  }
+
+  @Test
+  public void findMismatchedPaths_handEdited() throws Exception {
+    RevCommit review = review("Review-Files: *.c",
+        "a/x.c", "x2", "a/y.h", "y2", "b/z.c", "edited", "c/w.txt", "w1");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(10)).containsExactly("a/y.h", "b/z.c").inOrder();
+      update.rewritePaths();
+      assertThat(update.hasCurrentPaths()).isFalse();
+    }
+  }
+
+  @Test
+  public void findMismatchedPaths_wholeDirectory() throws Exception {
+    RevCommit review = review("Review-Files: a",
+        "a/x.c", "x2", "a/y.h", "y1", "b/z.c", "z1", "c/w.txt", "w1");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(10)).containsExactly("a/");
+    }
+  }
+
+  @Test
+  public void findMismatchedPaths_withoutReviewFiles() throws Exception {
+    RevCommit review = review(null,
+        "a/x.c", "x2", "a/y.h", "y2", "b/z.c", "z2", "c/w.txt", "w1");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(10)).isEmpty();
+    }
+  }
+
+  @Test
+  public void findMismatchedPaths_limit() throws Exception {
+    RevCommit review = review("Review-Files: *.c",
+        "a/x.c", "x3", "a/y.h", "y3", "b/z.c", "z3", "c/w.txt", "w1");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(2)).hasSize(2);
+    }
+  }
+
+  @Test
+  public void literalReviewFiles_otherDirectoriesNotEntered() throws Exception {
+    RevCommit review = review("Review-Files: /a/x.c",
+        "a/x.c", "x2", "a/y.h", "y1", "b/z.c", "z1", "c/w.txt", "w1");
+    AtomicInteger entries = new AtomicInteger();
+    try (UpdateTree update = open(review)) {
+      update.setProgressMonitor(new EmptyProgressMonitor() {
+        @Override
+        public void update(int completed) {
+          entries.addAndGet(completed);
+        }
+      });
+      update.rewritePaths();
+      assertThat(update.hasCurrentPaths()).isTrue();
+    }
+    // a, a/x.c, a/y.h, b, c
+    assertThat(entries.get()).isEqualTo(5);
+  }
+
+  @Test
+  public void severalTargets_composed() throws Exception {
+    addSecondTarget();
+    RevCommit review = review("Review-Files: *.c\nReview-Target: v2\nReview-Files: /c/",
+        "a/x.c", "x2", "a/y.h", "y1", "b/z.c", "z2", "c/w.txt", "w3");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.getExtraGroups()).hasSize(1);
+      assertThat(update.isValidReviewTarget()).isTrue();
+      assertThat(update.findMismatchedPaths(10)).isEmpty();
+      update.rewritePaths();
+      assertThat(update.hasCurrentPaths()).isTrue();
+    }
+  }
+
+  @Test
+  public void severalTargets_laterGroupWins() throws Exception {
+    addSecondTarget();
+    RevCommit review = review("Review-Files: *.c\nReview-Target: v2\nReview-Files: a",
+        "a/x.c", "x2", "a/y.h", "y1", "b/z.c", "z2", "c/w.txt", "w1");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(10)).containsExactly("a/");
+      update.rewritePaths();
+      assertThat(update.hasCurrentPaths()).isFalse();
+    }
+  }
+
+  @Test
+  public void severalTargets_directoryKeepsItsGroup() throws Exception {
+    addSecondTarget();
+    RevCommit review = review("Review-Files: a\nReview-Target: v2\nReview-Files: c",
+        "a/x.c", "x2", "a/y.h", "y2", "b/z.c", "z1", "c/w.txt", "w3");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(10)).isEmpty();
+      update.rewritePaths();
+      assertThat(update.hasCurrentPaths()).isTrue();
+    }
+  }
+
+  @Test
+  public void severalTargets_laterGroupInsideDirectory() throws Exception {
+    addSecondTarget();
+    RevCommit review = review("Review-Files: a\nReview-Target: v2\nReview-Files: /a/x.c",
+        "a/x.c", "x3", "a/y.h", "y2", "b/z.c", "z1", "c/w.txt", "w1");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(10)).isEmpty();
+      update.rewritePaths();
+      assertThat(update.hasCurrentPaths()).isTrue();
+    }
+  }
+
+  @Test
+  public void severalTargets_directoriesAtDifferentReleases() throws Exception {
+    RevCommit base = testRepo.commit().noFiles()
+        .add("src/main.c", "s1").add("config/app.conf", "c1").add("README", "r1")
+        .create();
+    testRepo.update("refs/tags/r1", testRepo.commit().noFiles()
+        .add("src/main.c", "s2").add("config/app.conf", "c2").add("README", "r2")
+        .create());
+    testRepo.update("refs/tags/r2", testRepo.commit().noFiles()
+        .add("src/main.c", "s3").add("config/app.conf", "c3").add("README", "r3")
+        .create());
+    RevCommit review = testRepo.commit().parent(base).noFiles()
+        .message("Review\n\nReview-Target: r1\nReview-Files: /src/\n"
+            + "Review-Target: r2\nReview-Files: /config/\n")
+        .add("src/main.c", "s2").add("config/app.conf", "c3").add("README", "r1")
+        .create();
+    try (UpdateTree update = open(review)) {
+      assertThat(update.findMismatchedPaths(10)).isEmpty();
+      update.rewritePaths();
+      assertThat(update.hasCurrentPaths()).isTrue();
+    }
+  }
+
+  @Test
+  public void severalTargets_unknownTarget() throws Exception {
+    RevCommit review = review("Review-Files: *.c\nReview-Target: v9\nReview-Files: /c/",
+        "a/x.c", "x2", "a/y.h", "y1", "b/z.c", "z2", "c/w.txt", "w1");
+    try (UpdateTree update = open(review)) {
+      assertThat(update.isValidReviewTarget()).isFalse();
+    }
+  }
+
+  private void addSecondTarget() throws Exception {
+    RevCommit second = testRepo.commit()
+        .add("a/x.c", "x3").add("a/y.h", "y3").add("b/z.c", "z3").add("c/w.txt", "w3")
+        .create();
+    testRepo.update("refs/tags/v2", second);
+  }
+
+  private UpdateTree open(RevCommit review) throws Exception {
+    UpdateTree update = new UpdateTree(repo, updateUtil, rebaseUtil);
+    update.useCommit(update.getRevWalk().parseCommit(review));
+    return update;
+  }
+
+  private RevCommit review(String reviewFiles, String... pathsAndContents) throws Exception {
+    String message = "Review\n\nReview-Target: v1\n" + (reviewFiles != null ? reviewFiles + "\n" : "");
+    TestRepository<InMemoryRepository>.CommitBuilder commit =
+        testRepo.commit().parent(parent).noFiles().message(message);
+    for (int i = 0; i < pathsAndContents.length; i += 2) {
+      commit.add(pathsAndContents[i], pathsAndContents[i + 1]);
+    }
+    return commit.create();
+  }
+}
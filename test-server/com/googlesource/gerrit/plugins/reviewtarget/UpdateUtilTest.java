@@ -15,17 +15,25 @@
 package com.googlesource.gerrit.plugins.reviewtarget;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.gerrit.server.change.NotifyResolver;
 import com.google.gerrit.server.change.PatchSetInserter;
 import com.google.gerrit.server.update.BatchUpdate;
 
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.List;
+
 @RunWith(MockitoJUnitRunner.class)
 public class UpdateUtilTest {
 
@@ -131,4 +139,51 @@ public class UpdateUtilTest {
     assertThat(updateUtil.insertFooters(oldMessage, "B", "C"))
     .isEqualTo(oldMessage);
   }
+
+  @Test
+  public void getFooters_parsedOncePerCommit() throws Exception {
+    when(cfg.getReviewTargetFooter()).thenReturn(Configuration.DEFAULT_REVIEW_TARGET_FOOTER);
+    when(cfg.getReviewFilesFooter()).thenReturn(Configuration.DEFAULT_REVIEW_FILES_FOOTER);
+    RevCommit commit = commit("Review-Target: v1\nReview-Files: src\nReview-Files: !*.h\n");
+
+    assertThat(updateUtil.getFooters(commit).getReviewTargets()).containsExactly("v1");
+    assertThat(updateUtil.getFooters(commit).getReviewFiles()).containsExactly("src", "!*.h").inOrder();
+    assertThat(updateUtil.getFooters(commit(commit)).getReviewFiles())
+        .containsExactly("src", "!*.h").inOrder();
+    verify(cfg, times(1)).getReviewTargetFooter();
+  }
+
+  @Test
+  public void getReviewGroups_filesFollowTheirTarget() throws Exception {
+    when(cfg.getReviewTargetFooter()).thenReturn(Configuration.DEFAULT_REVIEW_TARGET_FOOTER);
+    when(cfg.getReviewFilesFooter()).thenReturn(Configuration.DEFAULT_REVIEW_FILES_FOOTER);
+    RevCommit commit = commit("Review-Files: /doc/\nReview-Target: v1\nReview-Files: /src/\n"
+        + "Review-Target: v2\nReview-Files: /config/\n");
+
+    List<UpdateUtil.ReviewGroup> groups = updateUtil.getReviewGroups(commit);
+    assertThat(groups).hasSize(2);
+    assertThat(groups.get(0).getReviewTarget()).isEqualTo("v1");
+    assertThat(groups.get(0).getReviewFiles()).containsExactly("/doc/", "/src/").inOrder();
+    assertThat(groups.get(1).getReviewTarget()).isEqualTo("v2");
+    assertThat(groups.get(1).getReviewFiles()).containsExactly("/config/");
+  }
+
+  @Test
+  public void getReviewFilter_sharedForSameSelection() {
+    ReviewFilter filter = updateUtil.getReviewFilter(List.of(" src", "", "!*.h "));
+    assertThat(updateUtil.getReviewFilter("src\n!*.h")).isSameInstanceAs(filter);
+    assertThat(updateUtil.getReviewFilter("src")).isNotSameInstanceAs(filter);
+  }
+
+  private static RevCommit commit(String footers) {
+    String raw = "tree " + ObjectId.zeroId().name() + "\n"
+        + "author A <a@example.com> 0 +0000\n"
+        + "committer A <a@example.com> 0 +0000\n"
+        + "\nSubject\n\n" + footers;
+    return RevCommit.parse(raw.getBytes(UTF_8));
+  }
+
+  private static RevCommit commit(RevCommit other) {
+    return RevCommit.parse(other.getRawBuffer());
+  }
 }
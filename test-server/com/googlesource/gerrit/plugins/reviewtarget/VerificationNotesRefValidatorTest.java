@@ -0,0 +1,34 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.server.events.RefReceivedEvent;
+import com.google.gerrit.server.validators.ValidationException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class VerificationNotesRefValidatorTest {
+  private static final ObjectId ID = ObjectId.fromString("0123456789012345678901234567890123456789");
+
+  private final VerificationNotesRefValidator validator = new VerificationNotesRefValidator();
+
+  @Test
+  public void notesRef_rejected() {
+    assertThrows(ValidationException.class,
+        () -> validator.onRefOperation(event(VerificationNotes.NOTES_REF)));
+  }
+
+  @Test
+  public void otherRefs_accepted() throws Exception {
+    assertThat(validator.onRefOperation(event("refs/notes/commits"))).isEmpty();
+    assertThat(validator.onRefOperation(event("refs/heads/review"))).isEmpty();
+  }
+
+  private static RefReceivedEvent event(String refName) {
+    RefReceivedEvent event = new RefReceivedEvent();
+    event.command = new ReceiveCommand(ObjectId.zeroId(), ID, refName);
+    return event;
+  }
+}
@@ -0,0 +1,94 @@
+package com.googlesource.gerrit.plugins.reviewtarget;
+
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VerificationNotesTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("product");
+
+  @Mock private Configuration cfg;
+  @Mock private GitReferenceUpdated gitRefUpdated;
+
+  private InMemoryRepository repo;
+  private TestRepository<InMemoryRepository> testRepo;
+  private VerificationNotes notes;
+
+  @Before
+  public void setUp() throws Exception {
+    repo = new InMemoryRepository(new DfsRepositoryDescription("product"));
+    testRepo = new TestRepository<>(repo);
+    PersonIdent ident = new PersonIdent("Gerrit Code Review", "gerrit@example.com");
+    notes = new VerificationNotes(cfg, gitRefUpdated, () -> ident);
+  }
+
+  @Test
+  public void stamp_formatParse() {
+    VerificationNotes.Stamp stamp = stamp(1);
+    assertThat(VerificationNotes.Stamp.parse(stamp.format())).isEqualTo(stamp);
+    assertThat(VerificationNotes.Stamp.parse("target 123\n".getBytes())).isNull();
+  }
+
+  @Test
+  public void record_thenRead() throws Exception {
+    RevCommit a = testRepo.commit().message("a").create();
+    RevCommit b = testRepo.commit().message("b").create();
+
+    notes.record(PROJECT, repo, a, stamp(1));
+    notes.record(PROJECT, repo, b, stamp(2));
+
+    try (RevWalk rw = new RevWalk(repo)) {
+      assertThat(VerificationNotes.read(repo, rw, a)).isEqualTo(stamp(1));
+      assertThat(VerificationNotes.read(repo, rw, b)).isEqualTo(stamp(2));
+    }
+    verify(gitRefUpdated, times(2)).fire(eq(PROJECT), any(RefUpdate.class), isNull());
+  }
+
+  @Test
+  public void record_replacesOlderStamp() throws Exception {
+    RevCommit a = testRepo.commit().message("a").create();
+
+    notes.record(PROJECT, repo, a, stamp(1));
+    notes.record(PROJECT, repo, a, stamp(3));
+
+    try (RevWalk rw = new RevWalk(repo)) {
+      assertThat(VerificationNotes.read(repo, rw, a)).isEqualTo(stamp(3));
+    }
+  }
+
+  @Test
+  public void read_withoutNotes() throws Exception {
+    RevCommit a = testRepo.commit().message("a").create();
+    try (RevWalk rw = new RevWalk(repo)) {
+      assertThat(VerificationNotes.read(repo, rw, a)).isNull();
+    }
+  }
+
+  private static VerificationNotes.Stamp stamp(int n) {
+    return new VerificationNotes.Stamp(id(n), id(n + 100), id(n + 200));
+  }
+
+  private static ObjectId id(int n) {
+    return ObjectId.fromString(String.format("%040x", n));
+  }
+}
@@ -18,21 +18,56 @@
 import {ChangeInfo} from '@gerritcodereview/typescript-api/rest-api';
 import {RestPluginApi} from '@gerritcodereview/typescript-api/rest';
 
+export declare interface ReviewGroupInfo {
+  review_target: string;
+  review_files: string;
+  version: string;
+}
+
+export declare interface FileStats {
+  lines_inserted?: number;
+  lines_deleted?: number;
+  binary?: boolean;
+  skipped?: boolean;
+}
+
 export declare interface FollowInfo {
   on_review_branch: boolean;
   valid_review_target: boolean;
   rebase_required: boolean;
+  up_to_date?: boolean;
   new_patchset_id: number;
   version: string;
   follow_branch: string;
   follow_version: string;
   review_target: string;
   review_files: string;
+  review_groups?: ReviewGroupInfo[];
   added_paths: string[];
   updated_paths: string[];
   removed_paths: string[];
 }
 
+export declare interface FollowJobInfo {
+  id: string;
+  status: 'QUEUED' | 'RUNNING' | 'DONE' | 'FAILED';
+  entries_walked: number;
+  result?: FollowInfo;
+  error?: string;
+}
+
+/**
+ * The FollowInfo which the server adds to query results and change details.
+ * Returns null for changes which are not managed by this plugin, and
+ * undefined when the server sent no plugin attributes at all.
+ */
+export function changeFollowAttribute(pluginName: string, change: ChangeInfo): FollowInfo | null | undefined {
+  const plugins = (change as {plugins?: Array<{name: string}>}).plugins;
+  if (plugins === undefined) return undefined;
+  const info = plugins.find(p => p.name === pluginName);
+  return info === undefined ? null : info as unknown as FollowInfo;
+}
+
 export async function changeFollowGet(restApi: RestPluginApi, change: ChangeInfo): Promise<FollowInfo> {
   const endpoint = `/changes/${change.id}/follow`;
   const resp = await restApi.get<FollowInfo>(endpoint)
@@ -51,3 +86,39 @@ export async function changeFollowPost(restApi: RestPluginApi, change: ChangeInf
   console.debug("success POST", endpoint, content, resp);
   return resp;
 }
+
+/**
+ * Line statistics of the files directly in `dirs` ("/" for the top level),
+ * for the preview of the given selection.
+ */
+export async function changeFollowStats(restApi: RestPluginApi, change: ChangeInfo, reviewTarget: string, reviewFiles: string, dirs: string[]): Promise<{[path: string]: FileStats}> {
+  const params = [
+    `target=${encodeURIComponent(reviewTarget)}`,
+    `files=${encodeURIComponent(reviewFiles)}`,
+    ...dirs.map(dir => `dir=${encodeURIComponent(dir)}`),
+  ];
+  const endpoint = `/changes/${change.id}/follow_stats?${params.join("&")}`;
+  const resp = await restApi.get<{[path: string]: FileStats}>(endpoint)
+  console.debug("success GET", endpoint, resp);
+  return resp;
+}
+
+export async function changeFollowPostAsync(restApi: RestPluginApi, change: ChangeInfo, reviewTarget: string, reviewFiles: string): Promise<FollowJobInfo> {
+  const endpoint = `/changes/${change.id}/follow`;
+  const content = {
+    do_update: true,
+    new_review_target: reviewTarget,
+    new_review_files: reviewFiles,
+    async: true,
+  };
+  const resp = await restApi.post<FollowJobInfo>(endpoint, content)
+  console.debug("success POST", endpoint, content, resp);
+  return resp;
+}
+
+export async function changeFollowJobGet(restApi: RestPluginApi, change: ChangeInfo, id: string): Promise<FollowJobInfo> {
+  const endpoint = `/changes/${change.id}/follow_jobs/${id}`;
+  const resp = await restApi.get<FollowJobInfo>(endpoint)
+  console.debug("success GET", endpoint, resp);
+  return resp;
+}
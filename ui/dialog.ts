@@ -22,11 +22,14 @@ import {PluginApi} from '@gerritcodereview/typescript-api/plugin';
 import {PopupPluginApi} from '@gerritcodereview/typescript-api/popup';
 import {ChangeInfo} from '@gerritcodereview/typescript-api/rest-api';
 
-import {changeFollowPost, FollowInfo} from './api';
+import {changeFollowJobGet, changeFollowPost, changeFollowPostAsync, changeFollowStats, FileStats, FollowInfo, FollowJobInfo} from './api';
 import {BindValueChangeEvent} from './types';
 import {fireReload} from './event-util';
 import './gr-show-files';
 
+/** interval for checking the state of a running update */
+const POLL_INTERVAL_MS = 1000;
+
 declare global {
   interface HTMLElementTagNameMap {
     'gr-select-reviewtarget-dialog': SelectReviewTargetDialog,
@@ -61,8 +64,13 @@ export class SelectReviewTargetDialog extends LitElement {
 
   @state() addedPaths: string[] = [];
   @state() removedPaths: string[] = [];
+
+  /** line statistics, only loaded for the files which were shown */
+  @state() stats: {[path: string]: FileStats} = {};
   @state() updatedPaths: string[] = [];
 
+  @state() updateProgress = "";
+
   @state() rebaseRequired = false;
   @state() validReviewTarget = false;
 
@@ -158,7 +166,11 @@ export class SelectReviewTargetDialog extends LitElement {
             ${name}
           </gr-tooltip-content>
         </span>
-        <gr-show-files .files=${paths}>
+        <gr-show-files
+          .files=${paths}
+          .stats=${this.stats}
+          @files-shown=${this.loadStats}
+        >
         </gr-show-files>
       </section>
     `;
@@ -244,6 +256,10 @@ export class SelectReviewTargetDialog extends LitElement {
               <span class="title">Rebase</span>
               Update to new version of parent change
             </section>
+            <section ?hidden="${this.updateProgress == ""}">
+              <span class="title">Progress</span>
+              ${this.updateProgress}
+            </section>
           </div>
 
         </div>
@@ -280,15 +296,33 @@ export class SelectReviewTargetDialog extends LitElement {
       this.addedPaths = info.added_paths || [];
       this.updatedPaths = info.updated_paths || [];
       this.removedPaths = info.removed_paths || [];
+      this.stats = {};
       this.validReviewTarget = info.valid_review_target;
     } catch (e) {
       this.version = "<error>";
       this.addedPaths = this.updatedPaths = this.removedPaths = [];
+      this.stats = {};
       this.validReviewTarget = false;
     }
     this.loading = false;
   }
 
+  /** request the line statistics of the files in directories which were just opened */
+  private async loadStats(e: CustomEvent<{dirs: string[]}>) {
+    const reviewTarget = this.reviewTarget;
+    const reviewFiles = this.reviewFiles;
+    const restApi = this.plugin.restApi();
+    try {
+      const stats = await changeFollowStats(restApi, this.change, reviewTarget, reviewFiles, e.detail.dirs);
+      // ignore results for a selection which was changed in the meantime
+      if (reviewTarget == this.reviewTarget && reviewFiles == this.reviewFiles) {
+        this.stats = {...this.stats, ...stats};
+      }
+    } catch (err) {
+      console.warn("cannot load line statistics", err);
+    }
+  }
+
   override willUpdate(changedProperties: PropertyValues) {
     if (changedProperties.has('reviewTarget') || changedProperties.has('reviewFiles')) {
       this.loadPaths();
@@ -309,12 +343,38 @@ export class SelectReviewTargetDialog extends LitElement {
     console.debug("doUpdate", this.reviewTarget, this.reviewFiles);
 
     const restApi = this.plugin.restApi();
-    await changeFollowPost(restApi, this.change, true, this.reviewTarget, this.reviewFiles);
+    this.loading = true;
+    let job: FollowJobInfo;
+    try {
+      job = await changeFollowPostAsync(restApi, this.change, this.reviewTarget, this.reviewFiles);
+      while (job.status == 'QUEUED' || job.status == 'RUNNING') {
+        this.updateProgress = this._jobProgress(job);
+        await new Promise(resolve => setTimeout(resolve, POLL_INTERVAL_MS));
+        job = await changeFollowJobGet(restApi, this.change, job.id);
+      }
+    } catch (err) {
+      // e.g. 409 Conflict for a Review-Target which is not reachable
+      this.updateProgress = `Update failed: ${err instanceof Error ? err.message : err}`;
+      return;
+    } finally {
+      this.loading = false;
+    }
 
+    if (job.status == 'FAILED') {
+      this.updateProgress = `Update failed: ${job.error}`;
+      return;
+    }
     this.close();
     fireReload(this, /*clearPatchset=*/ true);
   }
 
+  /** describe the state of a running update job */
+  private _jobProgress(job: FollowJobInfo) {
+    if (job.status == 'QUEUED')
+      return `Waiting for other updates to finish`;
+    return `Updating, ${job.entries_walked} entries processed`;
+  }
+
   private async handleConfirmTap(e: Event) {
     e.preventDefault();
     e.stopPropagation();
@@ -15,32 +15,173 @@
  * limitations under the License.
  */
 
-import {css, html, LitElement} from 'lit';
+import {css, html, LitElement, PropertyValues} from 'lit';
 import {customElement, property, state} from 'lit/decorators';
 
+import {FileStats} from './api';
+
+/** height of one row in px, all rows have the same height for windowing */
+const ROW_HEIGHT = 20;
+
+/** number of rows visible without scrolling */
+const VISIBLE_ROWS = 25;
+
+/** rows rendered above and below the visible ones */
+const OVERSCAN_ROWS = 10;
+
+/** expand all directories when there are at most this many files */
+const AUTO_EXPAND_FILES = 100;
+
 declare global {
   interface HTMLElementTagNameMap {
     'gr-show-files': GrShowFiles,
   }
 }
 
+/** A directory with the number of files below it. */
+interface DirNode {
+  /** path relative to the parent, several levels if they only contain one directory */
+  name: string;
+  /** full path, empty for the root */
+  path: string;
+  dirs: Map<string, DirNode>;
+  files: string[];
+  count: number;
+}
+
+/** One line of the flattened tree. */
+interface Row {
+  depth: number;
+  dir?: DirNode;
+  file?: string;
+  path?: string;
+}
+
+function newDir(name: string, path: string): DirNode {
+  return {name, path, dirs: new Map(), files: [], count: 0};
+}
+
+function filePath(dir: DirNode, name: string) {
+  return dir.path ? `${dir.path}/${name}` : name;
+}
+
+/** Build the directory tree once for all paths. */
+function buildTree(files: string[]): DirNode {
+  const root = newDir("", "");
+  for (const file of files) {
+    const path = file.split("/");
+    let dir = root;
+    dir.count++;
+    for (let i = 0; i < path.length - 1; i++) {
+      let sub = dir.dirs.get(path[i]);
+      if (!sub) {
+        sub = newDir(path[i], path.slice(0, i + 1).join("/"));
+        dir.dirs.set(path[i], sub);
+      }
+      dir = sub;
+      dir.count++;
+    }
+    dir.files.push(path[path.length - 1]);
+  }
+  for (const dir of root.dirs.values()) {
+    compress(dir);
+  }
+  return root;
+}
+
+/** Merge directories which only contain a single directory into one row. */
+function compress(dir: DirNode) {
+  while (dir.files.length == 0 && dir.dirs.size == 1) {
+    const [only] = dir.dirs.values();
+    dir.name += "/" + only.name;
+    dir.path = only.path;
+    dir.dirs = only.dirs;
+    dir.files = only.files;
+  }
+  for (const sub of dir.dirs.values()) {
+    compress(sub);
+  }
+}
+
 @customElement('gr-show-files')
 export class GrShowFiles extends LitElement {
 
   @property({type: Array})
   files: string[] = [];
 
+  /** line statistics of the files in opened directories, requested with `files-shown` */
+  @property({type: Object})
+  stats: {[path: string]: FileStats} = {};
+
   @state() expanded = false;
 
+  /** index of the first visible row */
+  @state() firstRow = 0;
+
+  private root: DirNode = newDir("", "");
+
+  private openDirs = new Set<DirNode>();
+
+  /** the currently visible tree, only rebuilt when a directory is toggled */
+  private rows: Row[] = [];
+
   static override styles = [
     css`
       .summary { color: var(--deemphasized-text-color); }
-      .matchingFilePath { color: var(--deemphasized-text-color); }
       .newFilePath { color: var(--primary-text-color); }
       .fileName { color: var(--link-color); }
+      .list {
+        max-height: ${VISIBLE_ROWS * ROW_HEIGHT}px;
+        overflow-y: auto;
+      }
+      .row {
+        height: ${ROW_HEIGHT}px;
+        line-height: ${ROW_HEIGHT}px;
+        white-space: nowrap;
+        cursor: default;
+      }
+      .dir { cursor: pointer; }
+      .inserted { color: var(--positive-green-text-color); }
+      .deleted { color: var(--negative-red-text-color); }
     `
   ];
 
+  override willUpdate(changed: PropertyValues) {
+    if (changed.has('files')) {
+      this.root = buildTree(this.files);
+      this.openDirs.clear();
+      if (this.files.length <= AUTO_EXPAND_FILES) {
+        this.openAll(this.root);
+      }
+      this.rows = this.flatten();
+      this.firstRow = 0;
+    }
+  }
+
+  private openAll(dir: DirNode) {
+    for (const sub of dir.dirs.values()) {
+      this.openDirs.add(sub);
+      this.openAll(sub);
+    }
+  }
+
+  private flatten(): Row[] {
+    const rows: Row[] = [];
+    const add = (dir: DirNode, depth: number) => {
+      for (const sub of dir.dirs.values()) {
+        rows.push({depth, dir: sub});
+        if (this.openDirs.has(sub)) {
+          add(sub, depth + 1);
+        }
+      }
+      for (const file of dir.files) {
+        rows.push({depth, file, path: filePath(dir, file)});
+      }
+    };
+    add(this.root, 0);
+    return rows;
+  }
+
   renderSummary() {
     let count = this.files.length;
     if (count == 1) {
@@ -50,48 +191,66 @@ export class GrShowFiles extends LitElement {
     }
   }
 
-  renderPath(path: string[], previous: string[]) {
-    var index = 0;
-    var matchingFilePath = "";
-    var newFilePath = "";
+  renderRow(row: Row) {
+    const indent = `padding-left: ${row.depth * 16}px`;
+    if (row.dir) {
+      const dir = row.dir;
+      return html`
+        <div class="row dir" style=${indent} @click=${() => this._toggleDir(dir)}>
+          <gr-icon icon=${this.openDirs.has(dir) ? "expand_more" : "chevron_right"}></gr-icon>
+          <span class="newFilePath">${dir.name}/</span>
+          <span class="summary">(${dir.count})</span>
+        </div>
+      `;
+    }
+    return html`
+      <div class="row" style=${indent}>
+        <span class="fileName">${row.file}</span>
+        ${this.renderStats(this.stats[row.path!])}
+      </div>
+    `;
+  }
 
-    while (index < path.length-1 &&
-           index < previous.length-1 &&
-           path[index] == previous[index]) {
-      matchingFilePath += path[index] + "/";
-      index += 1;
+  renderStats(stats?: FileStats) {
+    if (!stats) {
+      return html``;
+    }
+    if (stats.binary) {
+      return html`<span class="summary">binary</span>`;
     }
-    while (index < path.length-1) {
-      newFilePath += path[index] + "/";
-      index += 1;
+    if (stats.skipped) {
+      return html`<span class="summary">too large</span>`;
     }
-    let fileName = path[index];
+    return html`
+      <span class="inserted">+${stats.lines_inserted}</span>
+      <span class="deleted">-${stats.lines_deleted}</span>
+    `;
+  }
 
+  renderList() {
+    const first = Math.max(0, this.firstRow - OVERSCAN_ROWS);
+    const last = Math.min(this.rows.length, this.firstRow + VISIBLE_ROWS + OVERSCAN_ROWS);
     return html`
-      <span class="matchingFilePath">${matchingFilePath}</span
-     ><span class="newFilePath">${newFilePath}</span
-     ><span class="fileName">${fileName}</span>
-      <br/>
+      <div class="list" @scroll=${this._scrollHandler}>
+        <div style="height: ${this.rows.length * ROW_HEIGHT}px; position: relative">
+          <div style="transform: translateY(${first * ROW_HEIGHT}px)">
+            ${this.rows.slice(first, last).map(row => this.renderRow(row))}
+          </div>
+        </div>
+      </div>
     `;
   }
 
   override render() {
     if (this.expanded) {
-      var previous: string[] = [];
       return html`
         <div @click=${this._clickHandler}>
           <span class=summary>${this.renderSummary()}</span>
           <gr-icon icon="expand_less"></gr-icon>
-          <br/>
-          ${this.files.map(file => {
-            let path = file.split("/");
-            let prev = previous;
-            previous = path;
-            return this.renderPath(path, prev);
-          })}
         </div>
+        ${this.renderList()}
       `;
-    } else {
+    } else {
       return html`
         <div @click=${this._clickHandler}>
           ${this.renderSummary()}
@@ -103,5 +262,48 @@ export class GrShowFiles extends LitElement {
 
   _clickHandler() {
     this.expanded = !this.expanded;
+    if (this.expanded) {
+      this._fireFilesShown(this.root);
+    }
+  }
+
+  /**
+   * Tell the owner which directories were opened, so that it can request
+   * the statistics of their files only now.
+   */
+  _fireFilesShown(dir: DirNode) {
+    const dirs = [dir];
+    if (dir == this.root) {
+      // small lists start with all directories expanded
+      dirs.push(...this.openDirs);
+    }
+    const missing = dirs
+      .filter(d => d.files.some(file => !(filePath(d, file) in this.stats)))
+      .map(d => d.path || "/");
+    if (missing.length > 0) {
+      this.dispatchEvent(new CustomEvent('files-shown', {
+        detail: {dirs: missing},
+        bubbles: true,
+        composed: true,
+      }));
+    }
+  }
+
+  _scrollHandler(e: Event) {
+    const first = Math.floor((e.target as HTMLElement).scrollTop / ROW_HEIGHT);
+    if (first != this.firstRow) {
+      this.firstRow = first;
+    }
+  }
+
+  _toggleDir(dir: DirNode) {
+    if (this.openDirs.has(dir)) {
+      this.openDirs.delete(dir);
+    } else {
+      this.openDirs.add(dir);
+      this._fireFilesShown(dir);
+    }
+    this.rows = this.flatten();
+    this.requestUpdate();
   }
 }
@@ -19,7 +19,7 @@ import {EventType} from '@gerritcodereview/typescript-api/plugin';
 import {ChangeInfo, RevisionInfo} from '@gerritcodereview/typescript-api/rest-api';
 import {ActionType} from '@gerritcodereview/typescript-api/change-actions';
 
-import {changeFollowGet} from './api';
+import {changeFollowAttribute, changeFollowGet} from './api';
 import {SelectReviewTargetDialog} from './dialog';
 
 
@@ -30,7 +30,12 @@ window.Gerrit.install(plugin => {
 
   plugin.on(EventType.SHOW_CHANGE, async (change: ChangeInfo, _revision: RevisionInfo, _mergeable: boolean) => {
     if (change.id === undefined) return;
-    const info = await changeFollowGet(restApi, change);
+    const attribute = changeFollowAttribute(plugin.getPluginName(), change);
+    if (attribute === null) {
+      // this change is not managed by our plugin
+      return;
+    }
+    const info = attribute ?? await changeFollowGet(restApi, change);
     if (!info.on_review_branch) {
       // this change is not managed by our plugin
       return;